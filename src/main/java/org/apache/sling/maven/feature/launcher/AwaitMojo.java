@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Waits for launches started by the {@code start} goal with {@code async} enabled, and finishes their start by
+ * taking their snapshots and warming them up. Fails if a launch did not start in time.
+ */
+@Mojo(name = "await", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST, threadSafe = true)
+public class AwaitMojo extends AbstractMojo {
+
+    /**
+     * List of {@link Launch} objects to wait for, see the {@code start} goal for the format.
+     */
+    @Parameter(required = true)
+    private List<Launch> launches;
+
+    /**
+     * The ids of the launches to wait for, by default all of them. The others are waited for by a later execution.
+     */
+    @Parameter(property = "feature-launcher.await.launchIds")
+    private List<String> launchIds;
+
+    /**
+     * The directory in which the features are launched, reports are written below its child directory
+     * {@code feature-launcher}.
+     */
+    @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
+    private File outputDirectory;
+
+    @Inject
+    private ProcessTracker processes;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        LaunchRunner runner = new LaunchRunner(processes, outputDirectory, true, false, getLog());
+        try {
+            for (Launch launch : launches) {
+                if (launch.isSkip()
+                        || (launchIds != null && !launchIds.isEmpty() && !launchIds.contains(launch.getId()))) {
+                    continue;
+                }
+                Optional<PendingLaunch> pending = processes.removePendingLaunch(runner.key(launch));
+                if (!pending.isPresent()) {
+                    if (processes.get(runner.key(launch)).isPresent()) {
+                        getLog().info("Launch with id " + launch.getId() + " was already started");
+                        continue;
+                    }
+                    throw new MojoExecutionException(
+                            "Launch " + launch.getId() + " was not started asynchronously by the start goal");
+                }
+                Process process = runner.await(pending.get());
+                runner.completeStart(launch, pending.get().getCommand(), process);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Execution interrupted", e);
+        }
+    }
+}
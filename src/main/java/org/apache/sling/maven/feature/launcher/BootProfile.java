@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Settings for profiling the boot of a launch from its output. Each pattern has to match a complete line of output
+ * and capture the symbolic name or location of the bundle in the group named {@code bundle}.
+ *
+ * <p>The defaults match the messages of the feature launcher and the framework, which are only logged with debug
+ * logging enabled, e.g. through the {@code felix.log.level} framework property.</p>
+ */
+public class BootProfile {
+
+    private String installPattern = ".*(?i:installing bundle)\\W+(?<bundle>[\\w.:/\\-]+).*";
+    private String startPattern = ".*(?i:starting bundle)\\W+(?<bundle>[\\w.:/\\-]+).*";
+    private String startedPattern = ".*(?i:started bundle)\\W+(?<bundle>[\\w.:/\\-]+).*";
+    private int top = 10;
+
+    public String getInstallPattern() {
+        return installPattern;
+    }
+
+    public void setInstallPattern(String installPattern) {
+        this.installPattern = installPattern;
+    }
+
+    public String getStartPattern() {
+        return startPattern;
+    }
+
+    public void setStartPattern(String startPattern) {
+        this.startPattern = startPattern;
+    }
+
+    /**
+     * @return the pattern of the line logged once a bundle was started; without it the activation of a bundle is
+     *         considered to last until the next event
+     */
+    public String getStartedPattern() {
+        return startedPattern;
+    }
+
+    public void setStartedPattern(String startedPattern) {
+        this.startedPattern = startedPattern;
+    }
+
+    /**
+     * @return the number of slowest bundles to log
+     */
+    public int getTop() {
+        return top;
+    }
+
+    public void setTop(int top) {
+        this.top = top;
+    }
+
+    void validate(String launchId) {
+        validatePattern(launchId, "installPattern", installPattern);
+        validatePattern(launchId, "startPattern", startPattern);
+        if (startedPattern != null && !startedPattern.isEmpty()) {
+            validatePattern(launchId, "startedPattern", startedPattern);
+        }
+    }
+
+    private static void validatePattern(String launchId, String name, String pattern) {
+        if (pattern == null || !pattern.contains("(?<bundle>")) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': bootProfile " + name + " must have a group named 'bundle'");
+        }
+        try {
+            Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': bootProfile " + name + " is invalid: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the bundle install and start events from the output of a booting launch and derives how long each
+ * bundle took.
+ *
+ * <p>The framework installs and starts bundles one after the other, so the boot is a single chain of events: the
+ * time from one event to the next is attributed to the bundle of the earlier event, unless an explicit end of the
+ * activation was logged.</p>
+ */
+class BootTimeline {
+
+    enum Type {
+        INSTALL,
+        START,
+        STARTED
+    }
+
+    static final class Event {
+        final long nanos;
+        final Type type;
+        final String bundle;
+
+        Event(long nanos, Type type, String bundle) {
+            this.nanos = nanos;
+            this.type = type;
+            this.bundle = bundle;
+        }
+    }
+
+    private final Pattern install;
+    private final Pattern start;
+    private final Pattern started;
+    private final long beginNanos;
+    private final List<Event> events = new ArrayList<>();
+    private long readyNanos = -1;
+
+    BootTimeline(BootProfile profile, long beginNanos) {
+        this.install = Pattern.compile(profile.getInstallPattern());
+        this.start = Pattern.compile(profile.getStartPattern());
+        String startedPattern = profile.getStartedPattern();
+        this.started = startedPattern != null && !startedPattern.isEmpty() ? Pattern.compile(startedPattern) : null;
+        this.beginNanos = beginNanos;
+    }
+
+    synchronized void accept(String line, long nanos) {
+        if (started != null && add(started, Type.STARTED, line, nanos)) {
+            return;
+        }
+        if (!add(start, Type.START, line, nanos)) {
+            add(install, Type.INSTALL, line, nanos);
+        }
+    }
+
+    private boolean add(Pattern pattern, Type type, String line, long nanos) {
+        Matcher m = pattern.matcher(line);
+        if (!m.matches()) {
+            return false;
+        }
+        events.add(new Event(nanos, type, m.group("bundle")));
+        return true;
+    }
+
+    synchronized void ready(long nanos) {
+        readyNanos = nanos;
+    }
+
+    /**
+     * @return the install durations per bundle in nanoseconds, in the order of installation
+     */
+    synchronized Map<String, Long> getInstallDurations() {
+        return durations(Type.INSTALL);
+    }
+
+    /**
+     * @return the activation durations per bundle in nanoseconds, in the order of activation
+     */
+    synchronized Map<String, Long> getActivationDurations() {
+        return durations(Type.START);
+    }
+
+    private Map<String, Long> durations(Type type) {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (event.type != type) {
+                continue;
+            }
+            long end = -1;
+            for (int j = i + 1; j < events.size() && end < 0; j++) {
+                Event next = events.get(j);
+                if (next.type != Type.STARTED || next.bundle.equals(event.bundle)) {
+                    end = next.nanos;
+                }
+            }
+            if (end < 0) {
+                end = readyNanos >= 0 ? readyNanos : event.nanos;
+            }
+            durations.merge(event.bundle, end - event.nanos, Long::sum);
+        }
+        return durations;
+    }
+
+    /**
+     * Splits the boot into the phases of the launcher preparing the framework, the installation and the activation
+     * of the bundles and the framework finishing its start.
+     *
+     * @return the duration of each phase in nanoseconds
+     */
+    synchronized Map<String, Long> getPhases() {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        long end = readyNanos >= 0 ? readyNanos : beginNanos;
+        long firstInstall = first(Type.INSTALL, end);
+        long firstStart = first(Type.START, end);
+        long installEnd = firstStart > firstInstall ? firstStart : lastEnd(Type.INSTALL, end);
+        long startEnd = lastEnd(Type.START, end);
+        phases.put("launcher and framework setup", Math.min(firstInstall, firstStart) - beginNanos);
+        phases.put("installing bundles", Math.max(installEnd - firstInstall, 0));
+        phases.put("activating bundles", Math.max(startEnd - firstStart, 0));
+        phases.put("until framework started", Math.max(end - Math.max(installEnd, startEnd), 0));
+        return phases;
+    }
+
+    private long first(Type type, long fallback) {
+        return events.stream()
+                .filter(e -> e.type == type)
+                .mapToLong(e -> e.nanos)
+                .findFirst()
+                .orElse(fallback);
+    }
+
+    private long lastEnd(Type type, long fallback) {
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (events.get(i).type == type) {
+                return i + 1 < events.size() ? events.get(i + 1).nanos : fallback;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Renders the boot profile as plain text.
+     *
+     * @param launchId the id of the launch
+     * @param limit the maximum number of bundles to list per ranking
+     * @return the lines of the report
+     */
+    synchronized List<String> report(String launchId, int limit) {
+        List<String> lines = new ArrayList<>();
+        long total = (readyNanos >= 0 ? readyNanos : beginNanos) - beginNanos;
+        lines.add("Boot profile of launch " + launchId + ": " + millis(total) + " ms until the framework started");
+        lines.add("");
+        lines.add("Critical path to readiness:");
+        getPhases()
+                .forEach((phase, nanos) -> lines.add(String.format(
+                        "  %-32s %8d ms %5.1f%%", phase, millis(nanos), total > 0 ? 100.0 * nanos / total : 0)));
+        lines.add("");
+        lines.add("Bundle activation (slowest first):");
+        ranked(getActivationDurations(), limit).forEach(lines::add);
+        lines.add("");
+        lines.add("Bundle installation (slowest first):");
+        ranked(getInstallDurations(), limit).forEach(lines::add);
+        return lines;
+    }
+
+    private static List<String> ranked(Map<String, Long> durations, int limit) {
+        if (durations.isEmpty()) {
+            return Collections.singletonList("  no events matched");
+        }
+        return durations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(e -> String.format("  %8d ms  %s", millis(e.getValue()), e.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * The headers of a bundle manifest which the pre-flight checks of a feature look at.
+ */
+class BundleManifest {
+
+    /**
+     * An imported package or a required bundle.
+     */
+    static final class Requirement {
+
+        private final String name;
+        private final String range;
+        private final boolean optional;
+
+        Requirement(String name, String range, boolean optional) {
+            this.name = name;
+            this.range = range;
+            this.optional = optional;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the version range, {@code null} for any version
+         */
+        String getRange() {
+            return range;
+        }
+
+        boolean isOptional() {
+            return optional;
+        }
+    }
+
+    private final String symbolicName;
+    private final String version;
+    private final Map<String, String> exports;
+    private final List<Requirement> imports;
+    private final List<Requirement> requiredBundles;
+
+    BundleManifest(
+            String symbolicName,
+            String version,
+            Map<String, String> exports,
+            List<Requirement> imports,
+            List<Requirement> requiredBundles) {
+        this.symbolicName = symbolicName;
+        this.version = version;
+        this.exports = exports;
+        this.imports = imports;
+        this.requiredBundles = requiredBundles;
+    }
+
+    /**
+     * @param jar the bundle
+     * @return the manifest, empty if the jar is not a bundle
+     * @throws IOException if the jar cannot be read
+     */
+    static Optional<BundleManifest> read(File jar) throws IOException {
+        try (JarFile file = new JarFile(jar, false)) {
+            Manifest manifest = file.getManifest();
+            return manifest == null ? Optional.empty() : parse(manifest.getMainAttributes());
+        }
+    }
+
+    static Optional<BundleManifest> parse(Attributes attributes) {
+        String symbolicName = attributes.getValue("Bundle-SymbolicName");
+        if (symbolicName == null) {
+            return Optional.empty();
+        }
+        Map<String, String> exports = new HashMap<>();
+        for (Clause clause : clauses(attributes.getValue("Export-Package"))) {
+            String version = clause.attributes.getOrDefault("version", "0.0.0");
+            clause.names.forEach(name -> exports.put(name, version));
+        }
+        List<Requirement> imports = new ArrayList<>();
+        for (Clause clause : clauses(attributes.getValue("Import-Package"))) {
+            boolean optional = "optional".equals(clause.attributes.get("resolution"));
+            clause.names.forEach(
+                    name -> imports.add(new Requirement(name, clause.attributes.get("version"), optional)));
+        }
+        List<Requirement> requiredBundles = new ArrayList<>();
+        for (Clause clause : clauses(attributes.getValue("Require-Bundle"))) {
+            boolean optional = "optional".equals(clause.attributes.get("resolution"));
+            clause.names.forEach(name ->
+                    requiredBundles.add(new Requirement(name, clause.attributes.get("bundle-version"), optional)));
+        }
+        return Optional.of(new BundleManifest(
+                clauses(symbolicName).get(0).names.get(0),
+                attributes.getValue("Bundle-Version") != null ? attributes.getValue("Bundle-Version") : "0.0.0",
+                exports,
+                imports,
+                requiredBundles));
+    }
+
+    String getSymbolicName() {
+        return symbolicName;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the exported packages mapped to their versions
+     */
+    Map<String, String> getExports() {
+        return exports;
+    }
+
+    List<Requirement> getImports() {
+        return imports;
+    }
+
+    List<Requirement> getRequiredBundles() {
+        return requiredBundles;
+    }
+
+    /**
+     * @param version an OSGi version
+     * @param range an OSGi version range like {@code [1.2,2)}, or a version as the lower bound, {@code null} for any
+     * @return whether the version is in the range
+     */
+    static boolean inRange(String version, String range) {
+        if (range == null || range.trim().isEmpty()) {
+            return true;
+        }
+        String trimmed = range.trim();
+        char first = trimmed.charAt(0);
+        if (first != '[' && first != '(') {
+            return compare(version, trimmed) >= 0;
+        }
+        char last = trimmed.charAt(trimmed.length() - 1);
+        String[] bounds = trimmed.substring(1, trimmed.length() - 1).split(",");
+        if (bounds.length != 2) {
+            return true;
+        }
+        int lower = compare(version, bounds[0].trim());
+        int upper = compare(version, bounds[1].trim());
+        return (first == '[' ? lower >= 0 : lower > 0) && (last == ']' ? upper <= 0 : upper < 0);
+    }
+
+    /**
+     * Compares two OSGi versions, {@code major.minor.micro.qualifier}.
+     */
+    static int compare(String a, String b) {
+        String[] left = a.trim().split("\\.", 4);
+        String[] right = b.trim().split("\\.", 4);
+        for (int i = 0; i < 3; i++) {
+            int difference = Integer.compare(number(left, i), number(right, i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        String leftQualifier = left.length > 3 ? left[3] : "";
+        String rightQualifier = right.length > 3 ? right[3] : "";
+        return leftQualifier.compareTo(rightQualifier);
+    }
+
+    private static int number(String[] parts, int index) {
+        if (parts.length <= index || parts[index].isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(parts[index]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A clause of a manifest header: one or more names followed by attributes and directives.
+     */
+    private static final class Clause {
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, String> attributes = new HashMap<>();
+    }
+
+    /**
+     * Splits a manifest header into its clauses, respecting quoted values, and directives as attributes.
+     */
+    private static List<Clause> clauses(String header) {
+        List<Clause> clauses = new ArrayList<>();
+        if (header == null) {
+            return clauses;
+        }
+        for (String clauseText : split(header, ',')) {
+            Clause clause = new Clause();
+            for (String part : split(clauseText, ';')) {
+                String trimmed = part.trim();
+                int separator = trimmed.indexOf('=');
+                if (separator < 0) {
+                    if (!trimmed.isEmpty()) {
+                        clause.names.add(trimmed);
+                    }
+                    continue;
+                }
+                String key = trimmed.substring(0, separator).replace(":", "").trim();
+                String value = trimmed.substring(separator + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                clause.attributes.put(key, value);
+            }
+            if (!clause.names.isEmpty()) {
+                clauses.add(clause);
+            }
+        }
+        return clauses;
+    }
+
+    private static List<String> split(String value, char separator) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        boolean quoted = false;
+        for (char c : value.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == separator && !quoted) {
+                parts.add(part.toString());
+                part.setLength(0);
+            } else {
+                part.append(c);
+            }
+        }
+        parts.add(part.toString());
+        return parts;
+    }
+}
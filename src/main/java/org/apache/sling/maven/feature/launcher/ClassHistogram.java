@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A class histogram as printed by {@code jcmd <pid> GC.class_histogram}, i.e. the number of instances and bytes per
+ * class on the heap.
+ */
+class ClassHistogram {
+
+    /** E.g. {@code    1:         12345         678900  java.lang.String (java.base@11.0.2)}. */
+    private static final Pattern LINE = Pattern.compile("\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+).*");
+
+    private final Map<String, long[]> classes = new HashMap<>();
+
+    static ClassHistogram parse(String output) {
+        ClassHistogram histogram = new ClassHistogram();
+        for (String line : output.split("\\R")) {
+            Matcher m = LINE.matcher(line);
+            if (m.matches()) {
+                histogram.classes.merge(
+                        m.group(3), new long[] {Long.parseLong(m.group(1)), Long.parseLong(m.group(2))}, (a, b) ->
+                                new long[] {a[0] + b[0], a[1] + b[1]});
+            }
+        }
+        return histogram;
+    }
+
+    long getBytes(String className) {
+        return classes.getOrDefault(className, new long[2])[1];
+    }
+
+    long getInstances(String className) {
+        return classes.getOrDefault(className, new long[2])[0];
+    }
+
+    /**
+     * Lists the classes which grew the most compared to an earlier histogram.
+     *
+     * @param earlier the earlier histogram
+     * @param limit the maximum number of classes to list
+     * @return descriptions of the classes, ordered by their growth in bytes
+     */
+    List<String> topGrowth(ClassHistogram earlier, int limit) {
+        return classes.keySet().stream()
+                .filter(c -> getBytes(c) > earlier.getBytes(c))
+                .sorted((a, b) -> Long.compare(getBytes(b) - earlier.getBytes(b), getBytes(a) - earlier.getBytes(a)))
+                .limit(limit)
+                .map(c -> String.format(
+                        "%s: %+d instances, %+d KiB",
+                        c, getInstances(c) - earlier.getInstances(c), (getBytes(c) - earlier.getBytes(c)) / 1024))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.UnArchiver;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+/**
+ * Exports launches into self-contained directories, from which they start without resolving anything, e.g. on CI
+ * agents with a cold workspace. Each directory {@code <exportDirectory>/<id>} contains
+ * <ul>
+ *   <li>the unpacked launcher,</li>
+ *   <li>the features in {@code features},</li>
+ *   <li>the artifacts referenced by the features in the Maven repository {@code repository},</li>
+ *   <li>the scripts {@code start.sh} and {@code start.bat}, which run the launcher with the arguments the
+ *   {@code start} goal would use.</li>
+ * </ul>
+ * Options for diagnostics written to the build directory, like {@code profile} or {@code gcLog}, and settings which
+ * need the plugin to watch the launch are not exported.
+ */
+@Mojo(name = "export", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
+public class ExportMojo extends AbstractMojo {
+
+    /**
+     * List of {@link Launch} objects to export, see the {@code start} goal for the format.
+     */
+    @Parameter(required = true)
+    private List<Launch> launches;
+
+    /**
+     * The directory to export the launches to, each into its child directory {@code <id>}.
+     */
+    @Parameter(
+            defaultValue = "${project.build.directory}/feature-launcher-export",
+            property = "feature-launcher.exportDirectory",
+            required = true)
+    private File exportDirectory;
+
+    /**
+     * The format of an archive to additionally pack each exported launch into, e.g. {@code zip} or {@code tar.gz}.
+     * The archive is written to {@code <exportDirectory>/<id>.<format>}.
+     */
+    @Parameter(property = "feature-launcher.exportArchive")
+    private String archiveFormat;
+
+    /**
+     * Artifacts to add to the exported repository besides those referenced by the features, e.g. the OSGi
+     * framework if the features do not declare one in their execution environment.
+     */
+    @Parameter
+    private List<Dependency> artifacts = new ArrayList<>();
+
+    /**
+     * The version of the <a href="https://github.com/apache/sling-org-apache-sling-feature-launcher">Sling Feature Launcher</a> to use.
+     */
+    @Parameter(required = true, defaultValue = "1.3.4")
+    private String featureLauncherVersion;
+
+    @Inject
+    private ArtifactResolver resolver;
+
+    @Parameter(defaultValue = "${project.remotePluginRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepos;
+
+    @Parameter(property = "session", readonly = true, required = true)
+    protected MavenSession mavenSession;
+
+    @Inject
+    private ArchiverManager archiverManager;
+
+    @Inject
+    private ResolutionCache resolutions;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            VersionRange beforeAssemblyRange = VersionRange.createFromVersionSpec("(,1.1.26]");
+            boolean useAssembly =
+                    !beforeAssemblyRange.containsVersion(new DefaultArtifactVersion(featureLauncherVersion));
+            RepositorySystemSession repositorySession = mavenSession.getRepositorySession();
+
+            for (Launch launch : launches) {
+                if (launch.isSkip()) {
+                    getLog().info("Skipping exporting launch with id " + launch.getId());
+                    continue;
+                }
+                launch.validate();
+
+                File target = new File(exportDirectory, launch.getId());
+                if (target.exists()) {
+                    FileUtils.cleanDirectory(target);
+                }
+                Files.createDirectories(target.toPath());
+                getLog().info("Exporting launch with id " + launch.getId() + " to " + target);
+
+                String launcher = exportLauncher(repositorySession, useAssembly, target);
+                List<String> arguments = new ArrayList<>();
+                List<File> featureFiles = exportFeatures(repositorySession, launch, target);
+                for (File featureFile : featureFiles) {
+                    arguments.add("-f");
+                    arguments.add("features/" + featureFile.getName());
+                }
+                exportArtifacts(repositorySession, launch, featureFiles, new File(target, "repository"));
+
+                arguments.add("-p");
+                arguments.add(launch.getId());
+                for (Map.Entry<String, String> frameworkProperty :
+                        launch.getLauncherArguments().getFrameworkProperties().entrySet()) {
+                    arguments.add("-D");
+                    arguments.add(frameworkProperty.getKey() + "=" + frameworkProperty.getValue());
+                }
+                for (Map.Entry<String, String> variable :
+                        launch.getLauncherArguments().getVariables().entrySet()) {
+                    arguments.add("-V");
+                    arguments.add(variable.getKey() + "=" + variable.getValue());
+                }
+
+                List<String> vmOptions = new ArrayList<>();
+                for (String vmOption : launch.getLauncherArguments().getVmOptions()) {
+                    if (vmOption != null && !vmOption.isEmpty()) {
+                        vmOptions.add(vmOption);
+                    }
+                }
+                StartScript script = new StartScript(
+                        launch.getId(), launcher, useAssembly, vmOptions, launch.getEnvironmentVariables(), arguments);
+                File unixScript = new File(target, "start.sh");
+                Files.write(unixScript.toPath(), script.unix().getBytes(StandardCharsets.UTF_8));
+                unixScript.setExecutable(true);
+                Files.write(
+                        new File(target, "start.bat").toPath(), script.windows().getBytes(StandardCharsets.UTF_8));
+
+                if (archiveFormat != null && !archiveFormat.trim().isEmpty()) {
+                    archive(launch, target);
+                }
+            }
+        } catch (NoSuchArchiverException
+                | InvalidVersionSpecificationException
+                | ArtifactResolutionException
+                | IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Execution interrupted", e);
+        }
+    }
+
+    /**
+     * @return the path of the launcher script or jar relative to the export directory
+     */
+    private String exportLauncher(RepositorySystemSession repositorySession, boolean useAssembly, File target)
+            throws ArtifactResolutionException, NoSuchArchiverException, IOException, InterruptedException {
+        if (useAssembly) {
+            Artifact assembly = new DefaultArtifact(
+                    "org.apache.sling:org.apache.sling.feature.launcher:tar.gz:" + featureLauncherVersion);
+            File assemblyArchive = resolve(repositorySession, assembly);
+            UnArchiver unArchiver = archiverManager.getUnArchiver(assemblyArchive);
+            unArchiver.setSourceFile(assemblyArchive);
+            unArchiver.setDestFile(target);
+            unArchiver.extract();
+            return assembly.getArtifactId() + "-" + assembly.getVersion() + "/bin/launcher";
+        }
+        Artifact jar =
+                new DefaultArtifact("org.apache.sling:org.apache.sling.feature.launcher:" + featureLauncherVersion);
+        File launcherJar = resolve(repositorySession, jar);
+        Files.copy(launcherJar.toPath(), new File(target, launcherJar.getName()).toPath());
+        return launcherJar.getName();
+    }
+
+    /**
+     * @return the exported feature files in the order they are passed to the launcher
+     */
+    private List<File> exportFeatures(RepositorySystemSession repositorySession, Launch launch, File target)
+            throws ArtifactResolutionException, IOException, InterruptedException {
+        List<File> sources = new ArrayList<>();
+        if (launch.getFeature().isPresent()) {
+            sources.add(
+                    resolve(repositorySession, toArtifact(launch.getFeature().get())));
+        } else if (launch.getFeatureFile().isPresent()) {
+            sources.add(launch.getFeatureFile().get());
+        } else {
+            for (FeatureReference reference : launch.getFeatures()) {
+                sources.add(
+                        reference.getFile().isPresent()
+                                ? reference.getFile().get()
+                                : resolve(repositorySession, toArtifact(reference)));
+            }
+        }
+        File directory = new File(target, "features");
+        Files.createDirectories(directory.toPath());
+        List<File> exported = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            File copy = new File(
+                    directory, String.format("%02d-%s", i, sources.get(i).getName()));
+            Files.copy(sources.get(i).toPath(), copy.toPath());
+            exported.add(copy);
+        }
+        return exported;
+    }
+
+    private void exportArtifacts(
+            RepositorySystemSession repositorySession, Launch launch, List<File> featureFiles, File repository)
+            throws MojoExecutionException, IOException, InterruptedException {
+        Set<String> ids = new LinkedHashSet<>();
+        for (File featureFile : featureFiles) {
+            String json = new String(Files.readAllBytes(featureFile.toPath()), StandardCharsets.UTF_8);
+            try {
+                ids.addAll(FeatureArtifacts.collect(
+                        json, launch.getLauncherArguments().getVariables()));
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Failed reading feature " + featureFile + ": " + e.getMessage(), e);
+            }
+        }
+        List<Artifact> exported = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        for (String id : ids) {
+            if (id.contains("${")) {
+                failures.add(id + " (unresolved variable)");
+                continue;
+            }
+            exported.add(FeatureArtifacts.toArtifact(id));
+        }
+        for (Dependency dependency : artifacts) {
+            exported.add(toArtifact(dependency));
+        }
+        for (Artifact artifact : exported) {
+            try {
+                Artifact resolved = resolutions.resolve(resolver, repositorySession, artifact, remoteRepos);
+                File copy = new File(repository, FeatureArtifacts.repositoryPath(resolved));
+                Files.createDirectories(copy.getParentFile().toPath());
+                Files.copy(resolved.getFile().toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (ArtifactResolutionException e) {
+                failures.add(artifact + " (" + e.getMessage() + ")");
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new MojoExecutionException(
+                    "Failed exporting the artifacts of launch " + launch.getId() + ": " + String.join(", ", failures));
+        }
+        getLog().info("Exported " + exported.size() + " artifacts of launch " + launch.getId());
+    }
+
+    private void archive(Launch launch, File target) throws NoSuchArchiverException, IOException {
+        File archive = new File(exportDirectory, launch.getId() + "." + archiveFormat);
+        Archiver archiver = archiverManager.getArchiver(archiveFormat);
+        archiver.addFileSet(DefaultFileSet.fileSet(target).prefixed(launch.getId() + "/"));
+        archiver.setDestFile(archive);
+        Files.deleteIfExists(archive.toPath());
+        archiver.createArchive();
+        getLog().info("Packed launch " + launch.getId() + " into " + archive);
+    }
+
+    private File resolve(RepositorySystemSession repositorySession, Artifact artifact)
+            throws ArtifactResolutionException, InterruptedException {
+        return resolutions
+                .resolve(resolver, repositorySession, artifact, remoteRepos)
+                .getFile();
+    }
+
+    private static Artifact toArtifact(Dependency dependency) {
+        return new DefaultArtifact(
+                dependency.getGroupId(),
+                dependency.getArtifactId(),
+                dependency.getClassifier(),
+                dependency.getType(),
+                dependency.getVersion());
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * Collects the artifacts a feature model refers to: its bundles, the framework of its execution environment, its
+ * prototype and the artifacts of its {@code ARTIFACTS} extensions, e.g. content packages.
+ *
+ * <p>The plugin does not depend on the feature model library, so the JSON is read by a minimal parser which accepts
+ * the comments allowed in feature files.</p>
+ */
+final class FeatureArtifacts {
+
+    /** {@code groupId:artifactId[:type[:classifier]]:version}. */
+    private static final Pattern COORDINATES = Pattern.compile("[^:\\s/]+(:[^:\\s/]+){2,4}");
+
+    private FeatureArtifacts() {}
+
+    /**
+     * @param json the feature model
+     * @param variables the variables passed to the launcher, which override the ones of the feature model
+     * @return the ids of the referenced artifacts in the format of the feature model, in their order, with the
+     *     variables replaced; ids with variables which are not set are included as they are
+     * @throws IllegalArgumentException if the feature model is not valid JSON
+     */
+    static Set<String> collect(String json, Map<String, String> variables) {
+        return collect(json, variables, false);
+    }
+
+    /**
+     * @param json the feature model
+     * @param variables the variables passed to the launcher, which override the ones of the feature model
+     * @return the ids of the bundles like {@link #collect(String, Map)}
+     * @throws IllegalArgumentException if the feature model is not valid JSON
+     */
+    static Set<String> bundles(String json, Map<String, String> variables) {
+        return collect(json, variables, true);
+    }
+
+    /**
+     * @param json the feature model
+     * @param variables the variables passed to the launcher, which override the ones of the feature model
+     * @return the framework properties of the feature model, with the variables replaced
+     * @throws IllegalArgumentException if the feature model is not valid JSON
+     */
+    static Map<String, String> frameworkProperties(String json, Map<String, String> variables) {
+        Object feature = new Parser(json).parse();
+        Map<String, String> properties = new LinkedHashMap<>();
+        if (feature instanceof Map && ((Map<?, ?>) feature).get("framework-properties") instanceof Map) {
+            Map<String, String> values = variables((Map<?, ?>) feature, variables);
+            ((Map<?, ?>) ((Map<?, ?>) feature).get("framework-properties"))
+                    .forEach((name, value) -> properties.put(name.toString(), replace(String.valueOf(value), values)));
+        }
+        return properties;
+    }
+
+    private static Set<String> collect(String json, Map<String, String> variables, boolean bundlesOnly) {
+        Object feature = new Parser(json).parse();
+        Set<String> ids = new LinkedHashSet<>();
+        if (!(feature instanceof Map)) {
+            return ids;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) feature).entrySet()) {
+            String key = entry.getKey().toString();
+            if (key.equals("bundles") || (!bundlesOnly && key.contains(":ARTIFACTS"))) {
+                if (entry.getValue() instanceof List) {
+                    ((List<?>) entry.getValue()).forEach(element -> addId(element, ids));
+                }
+            } else if (bundlesOnly) {
+                continue;
+            } else if (key.equals("prototype")) {
+                addId(entry.getValue(), ids);
+            } else if (key.equals("execution-environment") && entry.getValue() instanceof Map) {
+                addId(((Map<?, ?>) entry.getValue()).get("framework"), ids);
+            }
+        }
+        Map<String, String> values = variables((Map<?, ?>) feature, variables);
+        Set<String> replaced = new LinkedHashSet<>();
+        for (String id : ids) {
+            replaced.add(replace(id, values));
+        }
+        return replaced;
+    }
+
+    private static Map<String, String> variables(Map<?, ?> feature, Map<String, String> overrides) {
+        Map<String, String> values = new HashMap<>();
+        Object declared = feature.get("variables");
+        if (declared instanceof Map) {
+            ((Map<?, ?>) declared).forEach((name, value) -> values.put(name.toString(), String.valueOf(value)));
+        }
+        values.putAll(overrides);
+        return values;
+    }
+
+    private static String replace(String value, Map<String, String> variables) {
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            value = value.replace("${" + variable.getKey() + "}", variable.getValue());
+        }
+        return value;
+    }
+
+    private static void addId(Object element, Set<String> ids) {
+        Object id = element instanceof Map ? ((Map<?, ?>) element).get("id") : element;
+        if (id instanceof String && COORDINATES.matcher((String) id).matches()) {
+            ids.add((String) id);
+        }
+    }
+
+    /**
+     * @param id an artifact id in the format of the feature model
+     * @return the artifact, with the type of the feature model as its extension
+     */
+    static Artifact toArtifact(String id) {
+        String[] parts = id.split(":");
+        String type = parts.length > 3 ? parts[2] : "jar";
+        String classifier = parts.length > 4 ? parts[3] : "";
+        return new DefaultArtifact(parts[0], parts[1], classifier, type, parts[parts.length - 1]);
+    }
+
+    /**
+     * @return the path of the artifact in a repository with the Maven layout
+     */
+    static String repositoryPath(Artifact artifact) {
+        StringBuilder path = new StringBuilder()
+                .append(artifact.getGroupId().replace('.', '/'))
+                .append('/')
+                .append(artifact.getArtifactId())
+                .append('/')
+                .append(artifact.getBaseVersion())
+                .append('/')
+                .append(artifact.getArtifactId())
+                .append('-')
+                .append(artifact.getBaseVersion());
+        if (!artifact.getClassifier().isEmpty()) {
+            path.append('-').append(artifact.getClassifier());
+        }
+        return path.append('.').append(artifact.getExtension()).toString();
+    }
+
+    private static final class Parser {
+
+        private final String json;
+        private int pos;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Object parse() {
+            Object value = value();
+            skipWhitespace();
+            if (pos < json.length()) {
+                throw error("Unexpected content");
+            }
+            return value;
+        }
+
+        private Object value() {
+            skipWhitespace();
+            if (pos >= json.length()) {
+                throw error("Unexpected end");
+            }
+            char c = json.charAt(pos);
+            switch (c) {
+                case '{':
+                    return object();
+                case '[':
+                    return array();
+                case '"':
+                    return string();
+                default:
+                    return literal();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                object.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> array = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c == '\\') {
+                    if (pos >= json.length()) {
+                        break;
+                    }
+                    char escaped = json.charAt(pos++);
+                    switch (escaped) {
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 'b':
+                            value.append('\b');
+                            break;
+                        case 'f':
+                            value.append('\f');
+                            break;
+                        case 'u':
+                            if (pos + 4 > json.length()) {
+                                throw error("Invalid escape");
+                            }
+                            value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default:
+                            value.append(escaped);
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        /** Numbers, booleans and null, which are not needed and returned as their text. */
+        private String literal() {
+            int start = pos;
+            while (pos < json.length() && ",}] \t\r\n/".indexOf(json.charAt(pos)) < 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Unexpected character '" + json.charAt(pos) + "'");
+            }
+            return json.substring(start, pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (json.startsWith("//", pos)) {
+                    int end = json.indexOf('\n', pos);
+                    pos = end < 0 ? json.length() : end + 1;
+                } else if (json.startsWith("/*", pos)) {
+                    int end = json.indexOf("*/", pos + 2);
+                    if (end < 0) {
+                        throw error("Unterminated comment");
+                    }
+                    pos = end + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private char peek() {
+            if (pos >= json.length()) {
+                throw error("Unexpected end");
+            }
+            return json.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Checks the features of a launch before it is started, so that broken features fail the build in seconds instead
+ * of after the start timeout: all referenced artifacts have to be available, the non-optional package imports and
+ * required bundles of the bundles have to be satisfied by the bundles or the system bundle, and no two bundles may
+ * have the same symbolic name.
+ *
+ * <p>The artifacts are resolved and their manifests read in parallel. Passed checks are remembered by a hash of the
+ * features and the launcher variables and properties, unless the features refer to snapshots, which may change
+ * without the features changing.</p>
+ */
+class FeaturePreflight {
+
+    /**
+     * Resolves an artifact of a feature.
+     */
+    @FunctionalInterface
+    interface ArtifactSource {
+
+        File resolve(Artifact artifact) throws Exception;
+    }
+
+    /** Packages the system bundle of the OSGi framework exports besides those of the JRE. */
+    private static final List<String> FRAMEWORK_PACKAGES = Arrays.asList(
+            "org.osgi.dto",
+            "org.osgi.framework",
+            "org.osgi.resource",
+            "org.osgi.service.condition",
+            "org.osgi.service.packageadmin",
+            "org.osgi.service.resolver",
+            "org.osgi.service.startlevel",
+            "org.osgi.service.url",
+            "org.osgi.util.tracker");
+
+    private static final String SYSTEM_PACKAGES_EXTRA = "org.osgi.framework.system.packages.extra";
+
+    /** The packages of the JRE by its installation directory. */
+    private static final Map<String, Set<String>> JRE_PACKAGES = new ConcurrentHashMap<>();
+
+    private final ArtifactSource source;
+    private final String javaHome;
+    private final File cacheDirectory;
+    private final int threads;
+    private final Log log;
+
+    /**
+     * @param source the source of the artifacts
+     * @param javaHome the installation directory of the JRE the launch runs on
+     * @param cacheDirectory the directory remembering the passed checks
+     * @param threads the number of artifacts to resolve and read in parallel
+     * @param log the log
+     */
+    FeaturePreflight(ArtifactSource source, String javaHome, File cacheDirectory, int threads, Log log) {
+        this.source = source;
+        this.javaHome = javaHome;
+        this.cacheDirectory = cacheDirectory;
+        this.threads = threads;
+        this.log = log;
+    }
+
+    /**
+     * Checks the features of a launch.
+     *
+     * @param featureFiles the feature files of the launch
+     * @param variables the variables passed to the launcher
+     * @param frameworkProperties the framework properties passed to the launcher
+     * @return the problems found, empty if the features passed the checks
+     * @throws IOException if a feature cannot be read
+     * @throws InterruptedException if interrupted while waiting for the checks
+     */
+    List<String> check(List<File> featureFiles, Map<String, String> variables, Map<String, String> frameworkProperties)
+            throws IOException, InterruptedException {
+        Set<String> ids = new LinkedHashSet<>();
+        Set<String> bundleIds = new LinkedHashSet<>();
+        Map<String, String> properties = new HashMap<>();
+        StringBuilder inputs = new StringBuilder();
+        for (File featureFile : featureFiles) {
+            String json = new String(Files.readAllBytes(featureFile.toPath()), StandardCharsets.UTF_8);
+            try {
+                ids.addAll(FeatureArtifacts.collect(json, variables));
+                bundleIds.addAll(FeatureArtifacts.bundles(json, variables));
+                properties.putAll(FeatureArtifacts.frameworkProperties(json, variables));
+            } catch (IllegalArgumentException e) {
+                return Arrays.asList("Feature " + featureFile + " is not valid JSON: " + e.getMessage());
+            }
+            inputs.append(json).append('\0');
+        }
+        properties.putAll(frameworkProperties);
+        inputs.append(new TreeMap<>(variables)).append('\0').append(new TreeMap<>(properties));
+        inputs.append('\0').append(javaHome);
+
+        String hash = hash(inputs.toString());
+        File passed = new File(cacheDirectory, hash);
+        if (passed.isFile()) {
+            log.info("Features passed the pre-flight checks before, skip them");
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        List<String> problems = new ArrayList<>();
+        Map<String, BundleManifest> manifests = new TreeMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "feature-preflight");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<Optional<BundleManifest>>> results = new TreeMap<>();
+            for (String id : ids) {
+                if (id.contains("${")) {
+                    problems.add("Artifact " + id + " has a variable which is not set");
+                    continue;
+                }
+                boolean bundle = bundleIds.contains(id);
+                results.put(id, executor.submit(() -> {
+                    File file = source.resolve(FeatureArtifacts.toArtifact(id));
+                    return bundle ? BundleManifest.read(file) : Optional.<BundleManifest>empty();
+                }));
+            }
+            for (Map.Entry<String, Future<Optional<BundleManifest>>> result : results.entrySet()) {
+                try {
+                    result.getValue().get().ifPresent(manifest -> manifests.put(result.getKey(), manifest));
+                } catch (ExecutionException e) {
+                    problems.add("Artifact " + result.getKey() + " is not available: "
+                            + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        problems.addAll(checkBundles(manifests, systemPackages(javaHome, properties.get(SYSTEM_PACKAGES_EXTRA))));
+        log.info("Checked " + ids.size() + " artifacts of the features in " + (System.nanoTime() - start) / 1_000_000
+                + " ms");
+        if (problems.isEmpty() && ids.stream().noneMatch(id -> id.endsWith("SNAPSHOT"))) {
+            Files.createDirectories(cacheDirectory.toPath());
+            Files.write(passed.toPath(), new byte[0]);
+        }
+        return problems;
+    }
+
+    /**
+     * Checks the symbolic names, package imports and required bundles of the bundles of a feature.
+     *
+     * @param manifests the manifests of the bundles, by their artifact ids
+     * @param systemPackages the packages exported by the system bundle
+     * @return the problems found
+     */
+    static List<String> checkBundles(Map<String, BundleManifest> manifests, Set<String> systemPackages) {
+        List<String> problems = new ArrayList<>();
+        Map<String, String> symbolicNames = new HashMap<>();
+        Map<String, List<String>> exports = new HashMap<>();
+        for (Map.Entry<String, BundleManifest> entry : manifests.entrySet()) {
+            BundleManifest manifest = entry.getValue();
+            String other = symbolicNames.putIfAbsent(manifest.getSymbolicName(), entry.getKey());
+            if (other != null) {
+                problems.add("Bundles " + other + " and " + entry.getKey() + " have the same symbolic name "
+                        + manifest.getSymbolicName());
+            }
+            manifest.getExports().forEach((name, version) -> exports.computeIfAbsent(name, n -> new ArrayList<>())
+                    .add(version));
+        }
+        for (Map.Entry<String, BundleManifest> entry : manifests.entrySet()) {
+            for (BundleManifest.Requirement requirement : entry.getValue().getImports()) {
+                if (requirement.isOptional() || isSystemPackage(requirement.getName(), systemPackages)) {
+                    continue;
+                }
+                List<String> versions = exports.getOrDefault(requirement.getName(), new ArrayList<>());
+                if (versions.stream().noneMatch(v -> BundleManifest.inRange(v, requirement.getRange()))) {
+                    problems.add("Bundle " + entry.getKey() + " imports package " + requirement.getName()
+                            + (requirement.getRange() != null ? " " + requirement.getRange() : "")
+                            + (versions.isEmpty()
+                                    ? ", which no bundle exports"
+                                    : ", which is only exported in version " + String.join(", ", versions)));
+                }
+            }
+            for (BundleManifest.Requirement requirement : entry.getValue().getRequiredBundles()) {
+                if (requirement.isOptional()) {
+                    continue;
+                }
+                boolean present = manifests.values().stream()
+                        .anyMatch(m -> m.getSymbolicName().equals(requirement.getName())
+                                && BundleManifest.inRange(m.getVersion(), requirement.getRange()));
+                if (!present) {
+                    problems.add("Bundle " + entry.getKey() + " requires bundle " + requirement.getName()
+                            + (requirement.getRange() != null ? " " + requirement.getRange() : "")
+                            + ", which is missing");
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * @param javaHome the installation directory of the JRE the launch runs on
+     * @param extra the value of {@code org.osgi.framework.system.packages.extra}, may be {@code null}
+     * @return the packages exported by the JRE, the framework and the extra system packages
+     * @throws IOException if the modules of the JRE cannot be read
+     */
+    static Set<String> systemPackages(String javaHome, String extra) throws IOException {
+        Set<String> packages = new LinkedHashSet<>(FRAMEWORK_PACKAGES);
+        packages.addAll(jrePackages(javaHome));
+        if (extra != null) {
+            for (String clause : extra.split(",")) {
+                String name = clause.split(";")[0].trim();
+                if (!name.isEmpty()) {
+                    packages.add(name);
+                }
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * Reads the packages the {@code java.*} modules of a JRE export to all modules, which the framework exports by
+     * default. The packages of the {@code jdk.*} modules have to be added as extra system packages.
+     *
+     * @param javaHome the installation directory of the JRE
+     * @return the packages
+     * @throws IOException if the modules of the JRE cannot be read, e.g. because it is older than Java 9
+     */
+    static Set<String> jrePackages(String javaHome) throws IOException {
+        Set<String> cached = JRE_PACKAGES.get(javaHome);
+        if (cached != null) {
+            return cached;
+        }
+        Set<String> packages = new TreeSet<>();
+        try (FileSystem jrt = FileSystems.newFileSystem(
+                        URI.create("jrt:/"), Collections.singletonMap("java.home", javaHome));
+                Stream<Path> modules = Files.list(jrt.getPath("/modules"))) {
+            for (Path module : (Iterable<Path>) modules::iterator) {
+                Path descriptor = module.resolve("module-info.class");
+                if (!module.getFileName().toString().startsWith("java.") || !Files.isRegularFile(descriptor)) {
+                    continue;
+                }
+                try (InputStream in = Files.newInputStream(descriptor)) {
+                    ModuleDescriptor.read(in).exports().stream()
+                            .filter(export -> !export.isQualified())
+                            .forEach(export -> packages.add(export.source()));
+                }
+            }
+        } catch (ProviderNotFoundException | UnsupportedOperationException | IllegalArgumentException e) {
+            throw new IOException("Cannot read the modules of the JRE in " + javaHome + ": " + e.getMessage(), e);
+        }
+        JRE_PACKAGES.put(javaHome, packages);
+        return packages;
+    }
+
+    private static String hash(String inputs) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(inputs.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static boolean isSystemPackage(String name, Set<String> systemPackages) {
+        if (name.startsWith("java.") || systemPackages.contains(name)) {
+            return true;
+        }
+        return FRAMEWORK_PACKAGES.stream().anyMatch(p -> name.startsWith(p + "."));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.util.Optional;
+
+import org.apache.maven.model.Dependency;
+
+/**
+ * A feature of a launch which is composed of several features, given either by its Maven coordinates or by the
+ * path to its file.
+ */
+public class FeatureReference extends Dependency {
+
+    private static final long serialVersionUID = 1L;
+
+    private String file;
+
+    public FeatureReference() {
+        setType("slingosgifeature");
+    }
+
+    public Optional<File> getFile() {
+        return Optional.ofNullable(file).filter(f -> !f.trim().isEmpty()).map(File::new);
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    void validate(String launchId) {
+        boolean hasCoordinates = getArtifactId() != null;
+        if (hasCoordinates == getFile().isPresent()) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': each of its features needs either Maven coordinates or a file");
+        }
+        if (getFile().isPresent() && !getFile().get().exists()) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': feature file '" + file + "' does not exist");
+        }
+        if (hasCoordinates && !"slingosgifeature".equals(getType())) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': type must be 'slingosgifeature' but is '" + getType() + "'");
+        }
+    }
+}
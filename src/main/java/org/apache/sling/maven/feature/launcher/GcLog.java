@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+/**
+ * Settings for the GC log of a launch and the thresholds its analysis has to meet.
+ */
+public class GcLog {
+
+    private int fileCount = 5;
+    private String fileSize = "20m";
+    private double maxPauseP99Millis = 0;
+    private double maxOverheadPercent = 0;
+
+    /**
+     * @return the number of rotated GC log files to keep
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    /**
+     * @return the size at which the GC log is rotated, e.g. {@code 20m}
+     */
+    public String getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(String fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * @return the 99th percentile of the GC pauses above which the build fails, {@code 0} for no limit
+     */
+    public double getMaxPauseP99Millis() {
+        return maxPauseP99Millis;
+    }
+
+    public void setMaxPauseP99Millis(double maxPauseP99Millis) {
+        this.maxPauseP99Millis = maxPauseP99Millis;
+    }
+
+    /**
+     * @return the share of the run time spent in GC pauses above which the build fails, {@code 0} for no limit
+     */
+    public double getMaxOverheadPercent() {
+        return maxOverheadPercent;
+    }
+
+    public void setMaxOverheadPercent(double maxOverheadPercent) {
+        this.maxOverheadPercent = maxOverheadPercent;
+    }
+
+    void validate(String launchId) {
+        if (fileCount < 0 || maxPauseP99Millis < 0 || maxOverheadPercent < 0) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId
+                    + "': gcLog fileCount, maxPauseP99Millis and maxOverheadPercent must not be negative");
+        }
+        try {
+            MemoryBudget.parseSize(fileSize);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': gcLog fileSize '" + fileSize + "' is not a valid size");
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Analyses the unified GC log ({@code -Xlog:gc*}) of a launch: pause time percentiles, GC overhead, allocation rate
+ * and promotion rate.
+ *
+ * <p>The allocation rate is derived from the heap occupancy before each collection and after the previous one. The
+ * promotion rate is derived from the growth of the old generation during collections, which is logged by G1 in
+ * regions and by the Parallel and Serial collectors in KiB.</p>
+ *
+ * <p>Each JVM of a launch, e.g. before and after a restart, writes its own log with its process id in the file name.
+ * The logs are analysed one by one and then combined, with the pauses pooled for the percentiles and the rates and
+ * the overhead related to the summed up run times.</p>
+ */
+class GcLogAnalysis {
+
+    private static final double MEBIBYTE = 1024.0 * 1024.0;
+
+    private static final Pattern UPTIME = Pattern.compile("^\\[(\\d+[.,]\\d+)s\\]");
+
+    /** E.g. {@code GC(3) Pause Young (Normal) (G1 Evacuation Pause) 24M->4M(256M) 3.456ms}. */
+    private static final Pattern PAUSE = Pattern.compile(
+            "GC\\((\\d+)\\) Pause .*?(?:(\\d+)([KMG])->(\\d+)([KMG])\\(\\d+[KMG]\\) )?(\\d+[.,]\\d+)ms$");
+
+    private static final Pattern REGION_SIZE = Pattern.compile("[Hh]eap [Rr]egion [Ss]ize: (\\d+)([KMG])");
+
+    private static final Pattern OLD_REGIONS = Pattern.compile("GC\\((\\d+)\\) Old regions: (\\d+)->(\\d+)");
+
+    private static final Pattern OLD_GEN =
+            Pattern.compile("GC\\((\\d+)\\) (?:ParOldGen|PSOldGen|Tenured): (\\d+)K->(\\d+)K");
+
+    /** The name of the GC log of a launch relative to its report files, {@code %p} being the process id. */
+    static final String FILE_SUFFIX = "-gc-%p.log";
+
+    private final List<Double> pausesMillis = new ArrayList<>();
+    private int jvms = 1;
+    private double runSeconds;
+    private long allocatedBytes;
+    private double allocationSeconds;
+    private long promotedBytes;
+    private boolean oldGenerationLogged;
+
+    // state while parsing the log of a single JVM
+    private final Map<Integer, Long> oldGrowth = new HashMap<>();
+    private double lastUptime;
+    private long lastHeapAfter = -1;
+    private double firstHeapUptime = -1;
+    private double lastHeapUptime;
+    private long regionSize;
+
+    /**
+     * Returns the {@code -Xlog} option writing the GC log of a launch to the given file. The file is given relative to
+     * the working directory of the launch: the option may be passed through {@code JAVA_OPTS}, which the launcher
+     * script splits at spaces without honouring quotes, and {@code -Xlog} separates its parts by colons, so neither may
+     * occur in the path. Unlike an absolute path, the relative one only consists of the output directory layout and
+     * the launch id.
+     *
+     * @param file the GC log, with {@code %p} in its name for the process id
+     * @param workingDirectory the working directory of the launched JVM
+     * @param settings the GC log settings
+     * @return the option
+     * @throws IllegalArgumentException if the path of the file relative to the working directory contains a space or
+     *     colon
+     */
+    static String vmOption(File file, File workingDirectory, GcLog settings) {
+        String path = workingDirectory
+                .getAbsoluteFile()
+                .toPath()
+                .normalize()
+                .relativize(file.getAbsoluteFile().toPath().normalize())
+                .toString();
+        if (path.contains(" ") || path.contains(":")) {
+            throw new IllegalArgumentException(
+                    "The GC log " + path + " must not contain spaces or colons relative to " + workingDirectory);
+        }
+        return "-Xlog:gc*:file=" + path + ":uptime,level,tags:filecount=" + settings.getFileCount() + ",filesize="
+                + settings.getFileSize();
+    }
+
+    /**
+     * @param file the GC log, with {@code %p} in its name for the process id
+     * @return the GC log files and their rotated predecessors by the process id of the JVM which wrote them
+     */
+    static Map<String, List<Path>> files(File file) throws IOException {
+        Path directory = file.getParentFile().toPath();
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyMap();
+        }
+        String name = file.getName();
+        int pid = name.indexOf("%p");
+        Pattern pattern = Pattern.compile(Pattern.quote(name.substring(0, pid)) + "(\\d+)"
+                + Pattern.quote(name.substring(pid + 2)) + "(?:\\.\\d+)?");
+        Map<String, List<Path>> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(p -> {
+                Matcher m = pattern.matcher(p.getFileName().toString());
+                if (m.matches()) {
+                    files.computeIfAbsent(m.group(1), k -> new ArrayList<>()).add(p);
+                }
+            });
+        }
+        return files;
+    }
+
+    /**
+     * Analyses the logs of each JVM on its own and combines the results.
+     *
+     * @param jvms the log files of each JVM
+     */
+    static GcLogAnalysis read(Collection<List<Path>> jvms) throws IOException {
+        List<GcLogAnalysis> analyses = new ArrayList<>();
+        for (List<Path> files : jvms) {
+            List<String> lines = new ArrayList<>();
+            for (Path file : files) {
+                lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+            analyses.add(parse(lines));
+        }
+        return combine(analyses);
+    }
+
+    /**
+     * Parses the lines of the GC log of a single JVM, which may come from several rotated files in any order.
+     */
+    static GcLogAnalysis parse(List<String> lines) {
+        List<String> sorted = lines.stream()
+                .filter(l -> UPTIME.matcher(l).find())
+                .sorted(Comparator.comparingDouble(GcLogAnalysis::uptime))
+                .collect(Collectors.toList());
+        GcLogAnalysis analysis = new GcLogAnalysis();
+        sorted.forEach(analysis::add);
+        analysis.runSeconds = analysis.lastUptime;
+        if (analysis.firstHeapUptime >= 0) {
+            analysis.allocationSeconds = analysis.lastHeapUptime - analysis.firstHeapUptime;
+        }
+        analysis.promotedBytes = analysis.oldGrowth.values().stream()
+                .mapToLong(g -> Math.max(g, 0))
+                .sum();
+        analysis.oldGenerationLogged = !analysis.oldGrowth.isEmpty();
+        return analysis;
+    }
+
+    /**
+     * Combines the analyses of the GC logs of several JVMs.
+     */
+    static GcLogAnalysis combine(List<GcLogAnalysis> analyses) {
+        GcLogAnalysis combined = new GcLogAnalysis();
+        combined.jvms = analyses.size();
+        for (GcLogAnalysis analysis : analyses) {
+            combined.pausesMillis.addAll(analysis.pausesMillis);
+            combined.runSeconds += analysis.runSeconds;
+            combined.allocatedBytes += analysis.allocatedBytes;
+            combined.allocationSeconds += analysis.allocationSeconds;
+            combined.promotedBytes += analysis.promotedBytes;
+            combined.oldGenerationLogged |= analysis.oldGenerationLogged;
+        }
+        return combined;
+    }
+
+    private static double uptime(String line) {
+        Matcher m = UPTIME.matcher(line);
+        return m.find() ? Double.parseDouble(m.group(1).replace(',', '.')) : 0;
+    }
+
+    private void add(String line) {
+        double uptime = uptime(line);
+        lastUptime = uptime;
+
+        Matcher m = REGION_SIZE.matcher(line);
+        if (m.find()) {
+            regionSize = bytes(m.group(1), m.group(2));
+            return;
+        }
+        m = OLD_REGIONS.matcher(line);
+        if (m.find()) {
+            oldGrowth.put(
+                    Integer.parseInt(m.group(1)),
+                    (Long.parseLong(m.group(3)) - Long.parseLong(m.group(2))) * regionSize);
+            return;
+        }
+        m = OLD_GEN.matcher(line);
+        if (m.find()) {
+            oldGrowth.put(
+                    Integer.parseInt(m.group(1)), (Long.parseLong(m.group(3)) - Long.parseLong(m.group(2))) * 1024L);
+            return;
+        }
+        m = PAUSE.matcher(line);
+        if (m.find()) {
+            pausesMillis.add(Double.parseDouble(m.group(6).replace(',', '.')));
+            if (m.group(2) != null) {
+                long before = bytes(m.group(2), m.group(3));
+                long after = bytes(m.group(4), m.group(5));
+                if (lastHeapAfter >= 0) {
+                    allocatedBytes += Math.max(0, before - lastHeapAfter);
+                } else {
+                    firstHeapUptime = uptime;
+                }
+                lastHeapAfter = after;
+                lastHeapUptime = uptime;
+            }
+        }
+    }
+
+    private static long bytes(String value, String unit) {
+        return MemoryBudget.parseSize(value + unit);
+    }
+
+    int getPauseCount() {
+        return pausesMillis.size();
+    }
+
+    /**
+     * @param percentile the percentile, e.g. {@code 99}
+     * @return the pause time at the percentile in milliseconds with the nearest-rank method, {@code 0} without pauses
+     */
+    double getPausePercentile(double percentile) {
+        if (pausesMillis.isEmpty()) {
+            return 0;
+        }
+        List<Double> sorted = new ArrayList<>(pausesMillis);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    /**
+     * @return the share of the run time of the JVMs until their last log line spent in pauses, in percent
+     */
+    double getOverheadPercent() {
+        double runMillis = runSeconds * 1000.0;
+        double pauseMillis =
+                pausesMillis.stream().mapToDouble(Double::doubleValue).sum();
+        return runMillis > 0 ? 100.0 * pauseMillis / runMillis : 0;
+    }
+
+    /**
+     * @return the allocation rate in MiB per second, empty if fewer than two collections logged the heap occupancy
+     */
+    Optional<Double> getAllocationRate() {
+        return allocationSeconds > 0 ? Optional.of(allocatedBytes / MEBIBYTE / allocationSeconds) : Optional.empty();
+    }
+
+    /**
+     * @return the promotion rate in MiB per second, empty if the old generation was not logged
+     */
+    Optional<Double> getPromotionRate() {
+        if (!oldGenerationLogged || runSeconds <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(promotedBytes / MEBIBYTE / runSeconds);
+    }
+
+    void log(String launchId, Log log) {
+        log.info("GC log analysis for launch " + launchId + (jvms > 1 ? " over " + jvms + " JVMs" : "") + ":");
+        log.info(String.format(
+                "  %d pauses, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                getPauseCount(),
+                getPausePercentile(50),
+                getPausePercentile(90),
+                getPausePercentile(99),
+                getPausePercentile(100)));
+        log.info(String.format("  GC overhead %.2f%%", getOverheadPercent()));
+        log.info("  Allocation rate "
+                + getAllocationRate().map(r -> String.format("%.1f MiB/s", r)).orElse("n/a")
+                + ", promotion rate "
+                + getPromotionRate().map(r -> String.format("%.2f MiB/s", r)).orElse("n/a"));
+    }
+
+    /**
+     * @return the thresholds of the settings which were exceeded
+     */
+    List<String> checkThresholds(String launchId, GcLog settings) {
+        List<String> failures = new ArrayList<>();
+        double p99 = getPausePercentile(99);
+        if (settings.getMaxPauseP99Millis() > 0 && p99 > settings.getMaxPauseP99Millis()) {
+            failures.add(String.format(
+                    "Launch %s: p99 GC pause of %.1f ms exceeds the allowed %.1f ms",
+                    launchId, p99, settings.getMaxPauseP99Millis()));
+        }
+        double overhead = getOverheadPercent();
+        if (settings.getMaxOverheadPercent() > 0 && overhead > settings.getMaxOverheadPercent()) {
+            failures.add(String.format(
+                    "Launch %s: GC overhead of %.2f%% exceeds the allowed %.2f%%",
+                    launchId, overhead, settings.getMaxOverheadPercent()));
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Pushes bundles of the current project into a running launch through a directory watched by an installer in the
+ * launched framework, by default the Sling OSGi installer file provider.
+ *
+ * <p>The digests of the bundles the launch was started with, or which were deployed last, are kept in a state file,
+ * so that only changed bundles are deployed again.</p>
+ */
+class HotDeployment {
+
+    private final File deployDirectory;
+    private final File stateFile;
+
+    HotDeployment(Launch launch, File outputDirectory) {
+        this.deployDirectory = new File(new File(outputDirectory, "launchers"), launch.getId() + "-deploy");
+        this.stateFile = launch.getReportFile(outputDirectory, "-deployed.properties");
+    }
+
+    File getDeployDirectory() {
+        return deployDirectory;
+    }
+
+    /**
+     * Empties the deploy directory and records the given artifacts as the ones the launch was started with.
+     *
+     * @param artifacts the artifacts of the project
+     * @throws IOException if accessing the files fails
+     */
+    void reset(List<Artifact> artifacts) throws IOException {
+        if (deployDirectory.exists()) {
+            FileUtils.deleteDirectory(deployDirectory);
+        }
+        Files.createDirectories(deployDirectory.toPath());
+        Properties state = new Properties();
+        for (Artifact artifact : bundles(artifacts)) {
+            state.setProperty(artifact.getId(), digest(artifact.getFile()));
+        }
+        writeState(state);
+    }
+
+    /**
+     * Copies the artifacts which changed since the last call to {@link #reset(List)} or this method to the deploy
+     * directory.
+     *
+     * @param artifacts the artifacts of the project
+     * @return the deployed artifacts
+     * @throws IOException if accessing the files fails
+     */
+    List<Artifact> deployChanged(List<Artifact> artifacts) throws IOException {
+        if (!stateFile.isFile()) {
+            throw new IOException(
+                    "No deployment state found at " + stateFile + ", was the launch started with hotDeploy enabled?");
+        }
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+            state.load(in);
+        }
+        List<Artifact> deployed = new ArrayList<>();
+        for (Artifact artifact : bundles(artifacts)) {
+            String digest = digest(artifact.getFile());
+            if (!digest.equals(state.getProperty(artifact.getId()))) {
+                File target = new File(deployDirectory, ProjectArtifacts.getFileName(artifact));
+                // copy and move, so the installer never picks up a partially written file
+                File temp = new File(deployDirectory, "." + target.getName() + ".tmp");
+                Files.copy(artifact.getFile().toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                Files.move(
+                        temp.toPath(),
+                        target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                state.setProperty(artifact.getId(), digest);
+                deployed.add(artifact);
+            }
+        }
+        if (!deployed.isEmpty()) {
+            writeState(state);
+        }
+        return deployed;
+    }
+
+    private static List<Artifact> bundles(List<Artifact> artifacts) {
+        List<Artifact> bundles = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            if ("jar".equals(ProjectArtifacts.getExtension(artifact))) {
+                bundles.add(artifact);
+            }
+        }
+        return bundles;
+    }
+
+    private void writeState(Properties state) throws IOException {
+        Files.createDirectories(stateFile.getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(stateFile.toPath())) {
+            state.store(out, "Digests of the bundles deployed to the launch");
+        }
+    }
+
+    private static String digest(File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.shared.utils.Os;
+
+/**
+ * Runs <a href="https://docs.oracle.com/en/java/javase/11/tools/jcmd.html">jcmd</a> diagnostic commands against
+ * the JVM of a launched feature.
+ *
+ * <p>Depending on the launcher version and the OS the tracked {@link Process} is either the JVM itself or a
+ * script which spawned it, so the JVM is looked up in the process tree.</p>
+ */
+final class Jcmd {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private Jcmd() {}
+
+    /**
+     * Finds the JVM running the launcher, i.e. the given process or one of its descendants.
+     *
+     * @param process the launched process
+     * @return the process handle of the JVM, empty if none was found
+     */
+    static Optional<ProcessHandle> findJvm(Process process) {
+        return findJvms(process).stream().findFirst();
+    }
+
+    /**
+     * Finds all JVMs in the process tree of the launched process.
+     *
+     * @param process the launched process
+     * @return the process handles of the JVMs, the outermost first
+     */
+    static List<ProcessHandle> findJvms(Process process) {
+        ProcessHandle handle;
+        try {
+            handle = process.toHandle();
+        } catch (UnsupportedOperationException e) {
+            return Collections.emptyList();
+        }
+        return Stream.concat(Stream.of(handle), handle.descendants())
+                .filter(Jcmd::isJvm)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Executes a jcmd command against the given JVM.
+     *
+     * @param jvm the JVM to run the command against
+     * @param command the jcmd command and its arguments, e.g. {@code Thread.print}
+     * @return the output of the command
+     * @throws IOException in case jcmd could not be run or reported a failure
+     * @throws InterruptedException if interrupted while waiting for jcmd
+     */
+    static String execute(ProcessHandle jvm, String... command) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>();
+        args.add(executable(jvm).toString());
+        args.add(String.valueOf(jvm.pid()));
+        args.addAll(Arrays.asList(command));
+
+        Process jcmd = new ProcessBuilder(args).redirectErrorStream(true).start();
+        String output = IOUtils.toString(jcmd.getInputStream(), Charset.defaultCharset());
+        if (!jcmd.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            jcmd.destroyForcibly();
+            throw new IOException("jcmd " + String.join(" ", command) + " did not finish in " + TIMEOUT_SECONDS
+                    + " seconds for pid " + jvm.pid());
+        }
+        if (jcmd.exitValue() != 0) {
+            throw new IOException("jcmd " + String.join(" ", command) + " failed for pid " + jvm.pid()
+                    + " with exit code " + jcmd.exitValue() + ": " + output.trim());
+        }
+        return output;
+    }
+
+    private static boolean isJvm(ProcessHandle handle) {
+        return handle.info()
+                .command()
+                .map(c -> Paths.get(c).getFileName().toString())
+                .map(name -> name.equals("java") || name.equals("java.exe"))
+                .orElse(false);
+    }
+
+    /**
+     * Prefers the jcmd next to the launched java binary, so that it always matches the version of the target JVM.
+     */
+    private static Path executable(ProcessHandle jvm) {
+        String name = Os.isFamily(Os.FAMILY_WINDOWS) ? "jcmd.exe" : "jcmd";
+        Optional<Path> sibling =
+                jvm.info().command().map(c -> Paths.get(c).resolveSibling(name)).filter(Files::isExecutable);
+        return sibling.orElseGet(() -> Paths.get(System.getProperty("java.home"), "bin", name));
+    }
+}
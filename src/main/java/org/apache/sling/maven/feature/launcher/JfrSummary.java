@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Condenses a Java Flight Recorder recording into the few numbers which are worth looking at in a build log.
+ */
+class JfrSummary {
+
+    private static final int TOP_ENTRIES = 5;
+
+    private final Map<String, Long> cpuSamples = new HashMap<>();
+    private final Map<String, Long> allocatedBytes = new HashMap<>();
+    private final Map<String, Long> contendedMillis = new HashMap<>();
+    private long gcCount;
+    private Duration gcPauseTotal = Duration.ZERO;
+    private Duration gcPauseLongest = Duration.ZERO;
+    private long contendedCount;
+
+    static JfrSummary read(Path recording) throws IOException {
+        JfrSummary summary = new JfrSummary();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                summary.add(file.readEvent());
+            }
+        }
+        return summary;
+    }
+
+    private void add(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case "jdk.ExecutionSample":
+                cpuSamples.merge(topFrame(event), 1L, Long::sum);
+                break;
+            case "jdk.ObjectAllocationSample":
+                allocatedBytes.merge(topFrame(event), event.getLong("weight"), Long::sum);
+                break;
+            case "jdk.ObjectAllocationInNewTLAB":
+                allocatedBytes.merge(topFrame(event), event.getLong("tlabSize"), Long::sum);
+                break;
+            case "jdk.ObjectAllocationOutsideTLAB":
+                allocatedBytes.merge(topFrame(event), event.getLong("allocationSize"), Long::sum);
+                break;
+            case "jdk.GarbageCollection":
+                gcCount++;
+                gcPauseTotal = gcPauseTotal.plus(event.getDuration("sumOfPauses"));
+                Duration longest = event.getDuration("longestPause");
+                if (longest.compareTo(gcPauseLongest) > 0) {
+                    gcPauseLongest = longest;
+                }
+                break;
+            case "jdk.JavaMonitorEnter":
+                contendedCount++;
+                RecordedClass monitorClass = event.getClass("monitorClass");
+                String monitor = monitorClass != null ? monitorClass.getName() : "<unknown>";
+                contendedMillis.merge(monitor, event.getDuration().toMillis(), Long::sum);
+                break;
+            default:
+            // not part of the summary
+        }
+    }
+
+    private static String topFrame(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "<unknown>";
+        }
+        RecordedFrame frame = stackTrace.getFrames().get(0);
+        RecordedMethod method = frame.getMethod();
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    long getGcCount() {
+        return gcCount;
+    }
+
+    Duration getGcPauseTotal() {
+        return gcPauseTotal;
+    }
+
+    List<String> getTopCpuMethods() {
+        return top(cpuSamples, v -> v + " samples");
+    }
+
+    List<String> getTopAllocationSites() {
+        return top(allocatedBytes, v -> (v / 1024) + " KiB");
+    }
+
+    List<String> getTopContendedMonitors() {
+        return top(contendedMillis, v -> v + " ms");
+    }
+
+    void log(String launchId, Log log) {
+        log.info("JFR summary for launch " + launchId + ":");
+        log.info("  GC: " + gcCount + " collections, " + gcPauseTotal.toMillis() + " ms total pause, "
+                + gcPauseLongest.toMillis() + " ms longest pause");
+        logTop(log, "Top CPU methods", getTopCpuMethods());
+        logTop(log, "Top allocation sites", getTopAllocationSites());
+        log.info("  Lock contention: " + contendedCount + " contended monitor enters");
+        logTop(log, "Top contended monitors", getTopContendedMonitors());
+    }
+
+    private static void logTop(Log log, String title, List<String> entries) {
+        if (entries.isEmpty()) {
+            log.info("  " + title + ": none recorded");
+            return;
+        }
+        log.info("  " + title + ":");
+        entries.forEach(e -> log.info("    " + e));
+    }
+
+    private static List<String> top(Map<String, Long> values, LongFunction<String> format) {
+        return values.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_ENTRIES)
+                .map(e -> e.getKey() + " (" + format.apply(e.getValue()) + ")")
+                .collect(Collectors.toList());
+    }
+}
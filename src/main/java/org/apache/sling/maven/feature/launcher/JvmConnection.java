@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.PlatformManagedObject;
+import java.util.List;
+
+import com.sun.tools.attach.AttachNotSupportedException;
+import com.sun.tools.attach.VirtualMachine;
+
+/**
+ * A JMX connection to the JVM of a launch. It is established through the attach API, which starts the local
+ * management agent of the JVM on demand, so the launch does not need any JMX related options or ports.
+ */
+final class JvmConnection implements Closeable {
+
+    private final JMXConnector connector;
+    private final MBeanServerConnection connection;
+
+    private JvmConnection(JMXConnector connector) throws IOException {
+        this.connector = connector;
+        this.connection = connector.getMBeanServerConnection();
+    }
+
+    static JvmConnection attach(ProcessHandle jvm) throws IOException {
+        VirtualMachine vm;
+        try {
+            vm = VirtualMachine.attach(Long.toString(jvm.pid()));
+        } catch (AttachNotSupportedException e) {
+            throw new IOException("Cannot attach to JVM with pid " + jvm.pid() + ": " + e.getMessage(), e);
+        }
+        try {
+            String address = vm.startLocalManagementAgent();
+            return new JvmConnection(JMXConnectorFactory.connect(new JMXServiceURL(address)));
+        } finally {
+            vm.detach();
+        }
+    }
+
+    MBeanServerConnection getConnection() {
+        return connection;
+    }
+
+    <T extends PlatformManagedObject> T getPlatformMXBean(Class<T> type) throws IOException {
+        return ManagementFactory.getPlatformMXBean(connection, type);
+    }
+
+    <T extends PlatformManagedObject> List<T> getPlatformMXBeans(Class<T> type) throws IOException {
+        return ManagementFactory.getPlatformMXBeans(connection, type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        connector.close();
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Periodically samples the platform MXBeans and, if the OSGi JMX management model is deployed, the bundle states of a
+ * launched JVM and writes them as a CSV time series. The series continues across restarts of the launch, with the
+ * number of the JVM in its last column.
+ */
+class JvmTelemetry {
+
+    // failed samples in a row after which the connection is established again, if the JVM is still running
+    private static final int FAILURES_BEFORE_RECONNECT = 3;
+
+    private static final String HEADER = "time_ms,heap_used,heap_committed,gc_count,gc_time_ms,classes_loaded,"
+            + "threads,threads_runnable,threads_blocked,threads_waiting,threads_timed_waiting,"
+            + "bundles_active,bundles_resolved,bundles_other,jvm";
+
+    private final String launchId;
+    private final BufferedWriter out;
+    private final Log log;
+    private final ScheduledExecutorService executor;
+    private final long startMillis = System.currentTimeMillis();
+
+    private JvmConnection jvm;
+    private ProcessHandle process;
+    private boolean detached;
+    private int failures;
+    private int jvmCount = 1;
+    private long peakHeapUsed;
+    private int peakThreads;
+    private long firstGcTime = -1;
+    private long lastGcTime;
+    private long previousGcTime;
+    private long lastSampleMillis;
+
+    private JvmTelemetry(String launchId, ProcessHandle process, JvmConnection jvm, File file, Log log)
+            throws IOException {
+        this.launchId = launchId;
+        this.process = process;
+        this.jvm = jvm;
+        this.log = log;
+        Files.createDirectories(file.getParentFile().toPath());
+        this.out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        this.out.write(HEADER);
+        this.out.newLine();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "launch-telemetry-" + launchId);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Attaches to the JVM of a launch and starts sampling it.
+     *
+     * @param launchId the id of the launch
+     * @param process the JVM of the launch
+     * @param file the CSV file to write the samples to
+     * @param intervalSeconds the sampling interval
+     * @param log the log to report to
+     * @return the running telemetry
+     * @throws IOException if attaching or creating the file fails
+     */
+    static JvmTelemetry start(String launchId, ProcessHandle process, File file, int intervalSeconds, Log log)
+            throws IOException {
+        JvmConnection connection = JvmConnection.attach(process);
+        JvmTelemetry telemetry;
+        try {
+            telemetry = new JvmTelemetry(launchId, process, connection, file, log);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        telemetry.executor.scheduleAtFixedRate(telemetry::sample, 0, intervalSeconds, TimeUnit.SECONDS);
+        return telemetry;
+    }
+
+    private synchronized void sample() {
+        if (jvm == null && (detached || !process.isAlive() || !reconnect())) {
+            return;
+        }
+        try {
+            MemoryUsage heap = jvm.getPlatformMXBean(MemoryMXBean.class).getHeapMemoryUsage();
+            long gcCount = 0;
+            long gcTime = 0;
+            for (GarbageCollectorMXBean gc : jvm.getPlatformMXBeans(GarbageCollectorMXBean.class)) {
+                gcCount += Math.max(0, gc.getCollectionCount());
+                gcTime += Math.max(0, gc.getCollectionTime());
+            }
+            long classes = jvm.getPlatformMXBean(ClassLoadingMXBean.class).getLoadedClassCount();
+            int[] threadStates = new int[Thread.State.values().length];
+            ThreadMXBean threads = jvm.getPlatformMXBean(ThreadMXBean.class);
+            int threadCount = 0;
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (info != null) {
+                    threadStates[info.getThreadState().ordinal()]++;
+                    threadCount++;
+                }
+            }
+            int[] bundles = bundleStates();
+
+            long now = System.currentTimeMillis();
+            StringBuilder line = new StringBuilder();
+            line.append(now - startMillis).append(',');
+            line.append(heap.getUsed()).append(',').append(heap.getCommitted()).append(',');
+            line.append(gcCount).append(',').append(gcTime).append(',');
+            line.append(classes).append(',').append(threadCount).append(',');
+            line.append(threadStates[Thread.State.RUNNABLE.ordinal()]).append(',');
+            line.append(threadStates[Thread.State.BLOCKED.ordinal()]).append(',');
+            line.append(threadStates[Thread.State.WAITING.ordinal()]).append(',');
+            line.append(threadStates[Thread.State.TIMED_WAITING.ordinal()]).append(',');
+            line.append(bundles[0])
+                    .append(',')
+                    .append(bundles[1])
+                    .append(',')
+                    .append(bundles[2])
+                    .append(',');
+            line.append(jvmCount);
+            out.write(line.toString());
+            out.newLine();
+            out.flush();
+
+            peakHeapUsed = Math.max(peakHeapUsed, heap.getUsed());
+            peakThreads = Math.max(peakThreads, threadCount);
+            if (firstGcTime < 0) {
+                firstGcTime = gcTime;
+            }
+            lastGcTime = gcTime;
+            lastSampleMillis = now;
+            failures = 0;
+        } catch (IOException | RuntimeException e) {
+            sampleFailed(e);
+        }
+    }
+
+    private void sampleFailed(Exception e) {
+        if (!process.isAlive()) {
+            // the JVM is gone; sampling continues if the launch is restarted
+            log.debug("Pausing telemetry of launch " + launchId + ": " + e.getMessage());
+            closeConnection();
+            return;
+        }
+        // e.g. a call timed out during a long GC pause, the next sample is taken as usual
+        log.debug("Skipping telemetry sample of launch " + launchId + ": " + e.getMessage());
+        if (++failures < FAILURES_BEFORE_RECONNECT) {
+            return;
+        }
+        failures = 0;
+        closeConnection();
+        reconnect();
+    }
+
+    private boolean reconnect() {
+        try {
+            jvm = JvmConnection.attach(process);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed reconnecting telemetry of launch " + launchId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Counts the bundles by state through the OSGi JMX management model (RFC 139), if it is deployed.
+     *
+     * @return the number of active, resolved and other bundles, or {@code -1} for each if not available
+     */
+    private int[] bundleStates() throws IOException {
+        int[] counts = {-1, -1, -1};
+        try {
+            Set<ObjectName> names =
+                    jvm.getConnection().queryNames(new ObjectName("osgi.core:type=bundleState,*"), null);
+            if (names.isEmpty()) {
+                return counts;
+            }
+            TabularData bundles = (TabularData)
+                    jvm.getConnection().invoke(names.iterator().next(), "listBundles", new Object[0], new String[0]);
+            counts = new int[3];
+            for (Object row : bundles.values()) {
+                Object state = ((CompositeData) row).get("State");
+                if ("ACTIVE".equals(state)) {
+                    counts[0]++;
+                } else if ("RESOLVED".equals(state)) {
+                    counts[1]++;
+                } else {
+                    counts[2]++;
+                }
+            }
+        } catch (JMException | ClassCastException e) {
+            log.debug("Cannot read bundle states of launch " + launchId + ": " + e.getMessage());
+        }
+        return counts;
+    }
+
+    /**
+     * Continues sampling with the JVM of the restarted launch.
+     *
+     * @param process the new JVM of the launch
+     * @throws IOException if attaching fails
+     */
+    void attach(ProcessHandle process) throws IOException {
+        JvmConnection connection = JvmConnection.attach(process);
+        synchronized (this) {
+            closeConnection();
+            jvm = connection;
+            this.process = process;
+            detached = false;
+            failures = 0;
+            jvmCount++;
+            if (firstGcTime >= 0) {
+                previousGcTime += lastGcTime - firstGcTime;
+                firstGcTime = -1;
+            }
+        }
+    }
+
+    /**
+     * Stops sampling the current JVM of the launch before it is stopped.
+     */
+    synchronized void detach() {
+        detached = true;
+        closeConnection();
+    }
+
+    private synchronized void closeConnection() {
+        if (jvm == null) {
+            return;
+        }
+        try {
+            jvm.close();
+        } catch (IOException e) {
+            log.debug("Failed closing JMX connection of launch " + launchId + ": " + e.getMessage());
+        }
+        jvm = null;
+    }
+
+    /**
+     * Stops sampling and logs a summary.
+     */
+    void stop() {
+        try {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.debug("Failed closing telemetry of launch " + launchId + ": " + e.getMessage());
+                }
+                if (lastSampleMillis == 0) {
+                    log.info("No telemetry samples recorded for launch " + launchId);
+                    return;
+                }
+                long gcTime = previousGcTime + (firstGcTime >= 0 ? lastGcTime - firstGcTime : 0);
+                double gcOverhead = 100.0 * gcTime / Math.max(1, lastSampleMillis - startMillis);
+                log.info(String.format(
+                        "Telemetry of launch %s: peak heap %s, GC overhead %.1f%%, peak threads %d",
+                        launchId, MemoryBudget.format(peakHeapUsed), gcOverhead, peakThreads));
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+}
@@ -19,6 +19,9 @@
 package org.apache.sling.maven.feature.launcher;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,11 +39,26 @@ public class Launch {
     private String id;
     private Dependency feature;
     private String featureFile;
+    private List<FeatureReference> features = new ArrayList<>();
     private LauncherArguments launcherArguments = new LauncherArguments();
     private int startTimeoutSeconds = 30;
+    private int stallTimeoutSeconds = 0;
     private boolean skip = false;
     private Map<String, String> environmentVariables = new HashMap<>();
     private List<String> repositoryUrls = new ArrayList<>();
+    private String profile;
+    private Resources resources;
+    private int telemetryIntervalSeconds = 0;
+    private boolean hotDeploy = false;
+    private boolean snapshot = false;
+    private Soak soak;
+    private Warmup warmup;
+    private BootProfile bootProfile;
+    private Tmpfs tmpfs;
+    private GcLog gcLog;
+    private Recycling recycling;
+    private boolean logStore = false;
+    private String hotDeployProperty = "sling.fileinstall.dir";
 
     public String getId() {
         return id;
@@ -66,6 +84,21 @@ public class Launch {
         this.featureFile = featureFile;
     }
 
+    /**
+     * Returns the features the launch is composed of, as an alternative to a single {@code feature} or
+     * {@code featureFile}. The launcher aggregates them in their order.
+     *
+     * @return the features, empty if a single feature is launched
+     */
+    public List<FeatureReference> getFeatures() {
+        if (features == null) return Collections.emptyList();
+        return features;
+    }
+
+    public void setFeatures(List<FeatureReference> features) {
+        this.features = features;
+    }
+
     public LauncherArguments getLauncherArguments() {
         return launcherArguments;
     }
@@ -82,6 +115,20 @@ public class Launch {
         this.startTimeoutSeconds = startTimeoutSeconds;
     }
 
+    /**
+     * Returns the number of seconds without any output after which the boot of the launch is considered stalled and
+     * a thread dump is captured.
+     *
+     * @return the stall timeout in seconds, {@code 0} if stalls are not detected
+     */
+    public int getStallTimeoutSeconds() {
+        return stallTimeoutSeconds;
+    }
+
+    public void setStallTimeoutSeconds(int stallTimeoutSeconds) {
+        this.stallTimeoutSeconds = stallTimeoutSeconds;
+    }
+
     public boolean isSkip() {
         return skip;
     }
@@ -107,6 +154,217 @@ public class Launch {
         this.repositoryUrls = repositoryUrls;
     }
 
+    /**
+     * Returns the settings of the Java Flight Recorder recording to start with this launch.
+     *
+     * @return the name of a JFR settings profile like {@code default} or {@code profile} or the path to a custom
+     *         {@code .jfc} file, empty if the launch should not be profiled
+     */
+    public Optional<String> getProfile() {
+        return Optional.ofNullable(profile).filter(p -> !p.trim().isEmpty());
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Returns the interval in which heap, GC, class loading, thread and bundle state metrics of the launched JVM are
+     * sampled while it is running.
+     *
+     * @return the interval in seconds, {@code 0} if no telemetry is collected
+     */
+    public int getTelemetryIntervalSeconds() {
+        return telemetryIntervalSeconds;
+    }
+
+    public void setTelemetryIntervalSeconds(int telemetryIntervalSeconds) {
+        this.telemetryIntervalSeconds = telemetryIntervalSeconds;
+    }
+
+    /**
+     * Returns whether bundles of the current project can be redeployed into the running launch with the
+     * {@code redeploy} goal. This requires an installer in the launched feature which watches the directory passed
+     * through {@link #getHotDeployProperty()}.
+     *
+     * @return {@code true} if hot deployment is enabled
+     */
+    public boolean isHotDeploy() {
+        return hotDeploy;
+    }
+
+    public void setHotDeploy(boolean hotDeploy) {
+        this.hotDeploy = hotDeploy;
+    }
+
+    /**
+     * @return the framework property to pass the watched deploy directory in, by default the one of the Sling OSGi
+     *         installer file provider
+     */
+    public String getHotDeployProperty() {
+        return hotDeployProperty;
+    }
+
+    public void setHotDeployProperty(String hotDeployProperty) {
+        this.hotDeployProperty = hotDeployProperty;
+    }
+
+    /**
+     * Returns whether a snapshot of the launch home directory is taken once the launch was started for the first
+     * time, which the {@code reset} goal restores. Taking the snapshot requires a restart of the launch, so that the
+     * files are consistent.
+     *
+     * @return {@code true} if a snapshot is taken
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the soak settings of the launch. A soaking launch is kept running at least for the soak duration and the
+     * {@code stop} goal fails if its heap usage after GC grew faster than allowed.
+     *
+     * @return the soak settings, empty if the launch does not soak
+     */
+    public Optional<Soak> getSoak() {
+        return Optional.ofNullable(soak);
+    }
+
+    public void setSoak(Soak soak) {
+        this.soak = soak;
+    }
+
+    /**
+     * Returns the warm-up of the launch, which runs once the framework was started and before the {@code start} and
+     * {@code reset} goals return.
+     *
+     * @return the warm-up settings, empty if the launch is not warmed up
+     */
+    public Optional<Warmup> getWarmup() {
+        return Optional.ofNullable(warmup);
+    }
+
+    public void setWarmup(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * Returns the settings for deriving the install and activation time of each bundle from the output of the launch
+     * while it boots. The report is written to {@code <outputDirectory>/feature-launcher/<id>-boot.txt}.
+     *
+     * @return the boot profile settings, empty if the boot is not profiled
+     */
+    public Optional<BootProfile> getBootProfile() {
+        return Optional.ofNullable(bootProfile);
+    }
+
+    public void setBootProfile(BootProfile bootProfile) {
+        this.bootProfile = bootProfile;
+    }
+
+    /**
+     * Returns the settings for placing the home directory of the launch on a memory-backed filesystem, which speeds
+     * up launches bound by writes to their repository or framework cache. On stop the files matching
+     * {@link Tmpfs#getCopyBack()} are copied back to disk and the rest is discarded.
+     *
+     * @return the tmpfs settings, empty if the home directory is on disk
+     */
+    public Optional<Tmpfs> getTmpfs() {
+        return Optional.ofNullable(tmpfs);
+    }
+
+    public void setTmpfs(Tmpfs tmpfs) {
+        this.tmpfs = tmpfs;
+    }
+
+    /**
+     * Returns whether the output of the launch is captured in a log store below
+     * {@code <outputDirectory>/feature-launcher/<id>-log}, which tests can query through {@link LaunchLog}. The output
+     * is captured for as long as the launch runs, while only the output until the framework started is passed through
+     * to the build log.
+     *
+     * @return {@code true} if the output is captured
+     */
+    public boolean isLogStore() {
+        return logStore;
+    }
+
+    public void setLogStore(boolean logStore) {
+        this.logStore = logStore;
+    }
+
+    /**
+     * Returns the settings for the GC log of the launch, which is written to
+     * {@code <outputDirectory>/feature-launcher/<id>-gc.log} and analysed by the {@code stop} goal.
+     *
+     * @return the GC log settings, empty if no GC log is written
+     */
+    public Optional<GcLog> getGcLog() {
+        return Optional.ofNullable(gcLog);
+    }
+
+    public void setGcLog(GcLog gcLog) {
+        this.gcLog = gcLog;
+    }
+
+    /**
+     * Returns the policy for restarting the launch between test classes, which signal their end through
+     * {@link LaunchRecycling}. Requires the process of the launch to be tracked.
+     *
+     * @return the recycling policy, empty if the launch runs until it is stopped
+     */
+    public Optional<Recycling> getRecycling() {
+        return Optional.ofNullable(recycling);
+    }
+
+    public void setRecycling(Recycling recycling) {
+        this.recycling = recycling;
+    }
+
+    public Optional<Resources> getResources() {
+        return Optional.ofNullable(resources);
+    }
+
+    public void setResources(Resources resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Returns an id of this launch which is unique among the launches of all modules of a build, also when they run
+     * in parallel, for tracking its process and naming resources shared beyond the module.
+     *
+     * @param outputDirectory the build output directory of the module
+     * @return the id of the launch, followed by a hash of the output directory
+     */
+    String getQualifiedId(File outputDirectory) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(outputDirectory.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            StringBuilder qualified = new StringBuilder(id).append('-');
+            for (int i = 0; i < 6; i++) {
+                qualified.append(String.format("%02x", digest[i]));
+            }
+            return qualified.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Returns a file for reports and diagnostics of this launch.
+     *
+     * @param outputDirectory the build output directory
+     * @param suffix the suffix to append to the launch id, e.g. {@code .jfr}
+     * @return the file {@code <outputDirectory>/feature-launcher/<id><suffix>}
+     */
+    File getReportFile(File outputDirectory, String suffix) {
+        return new File(new File(outputDirectory, "feature-launcher"), id + suffix);
+    }
+
     public void validate() {
         if (id == null || id.trim().isEmpty()) throw new IllegalArgumentException("Missing id");
 
@@ -116,19 +374,48 @@ public class Launch {
 
         if (startTimeoutSeconds < 0) throwInvalid("startTimeout value '" + startTimeoutSeconds + "' is negative");
 
+        if (stallTimeoutSeconds < 0) throwInvalid("stallTimeout value '" + stallTimeoutSeconds + "' is negative");
+
+        if (telemetryIntervalSeconds < 0)
+            throwInvalid("telemetryInterval value '" + telemetryIntervalSeconds + "' is negative");
+
         boolean hasFeature = feature != null;
         boolean hasFeatureFile = featureFile != null && !featureFile.trim().isEmpty();
+        boolean hasFeatures = !getFeatures().isEmpty();
 
-        if (hasFeature && hasFeatureFile)
-            throwInvalid("Only one of 'feature' and 'featureFile' is allowed, but both are set");
+        if ((hasFeature ? 1 : 0) + (hasFeatureFile ? 1 : 0) + (hasFeatures ? 1 : 0) > 1)
+            throwInvalid("Only one of 'feature', 'featureFile' and 'features' is allowed, but several are set");
 
-        if (!hasFeature && !hasFeatureFile) throwInvalid("Neither 'feature' nor 'featureFile' are set");
+        if (!hasFeature && !hasFeatureFile && !hasFeatures)
+            throwInvalid("Neither 'feature' nor 'featureFile' nor 'features' are set");
 
         if (hasFeatureFile && !new File(featureFile).exists())
             throwInvalid("Feature file '" + featureFile + "' does not exist");
 
         if (hasFeature && !"slingosgifeature".equals(feature.getType()))
             throwInvalid("type must be 'slingosgifeature' but is '" + feature.getType() + "'");
+
+        for (FeatureReference reference : getFeatures()) {
+            reference.validate(id);
+        }
+
+        if (resources != null) resources.validate(id);
+
+        if (soak != null) soak.validate(id);
+
+        if (warmup != null) warmup.validate(id);
+
+        if (bootProfile != null) bootProfile.validate(id);
+
+        if (tmpfs != null) tmpfs.validate(id);
+
+        if (gcLog != null) gcLog.validate(id);
+
+        if (recycling != null) {
+            recycling.validate(id);
+            if (recycling.isRestoreSnapshot() && !snapshot)
+                throwInvalid("recycling can only restore the snapshot if 'snapshot' is enabled");
+        }
     }
 
     private void throwInvalid(String reason) {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Everything needed to start a launch outside of Maven: its command line, working directory, environment and start
+ * timeout. It is stored as a properties file, so that it can be read without any dependencies.
+ */
+class LaunchDescriptor {
+
+    private static final String COMMAND = "command.";
+    private static final String ENVIRONMENT = "env.";
+    private static final String DIRECTORY = "directory";
+    private static final String START_TIMEOUT = "startTimeoutSeconds";
+
+    private final List<String> command;
+    private final File directory;
+    private final Map<String, String> environment;
+    private final int startTimeoutSeconds;
+
+    LaunchDescriptor(List<String> command, File directory, Map<String, String> environment, int startTimeoutSeconds) {
+        this.command = command;
+        this.directory = directory;
+        this.environment = environment;
+        this.startTimeoutSeconds = startTimeoutSeconds;
+    }
+
+    static LaunchDescriptor read(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        }
+        List<String> command = new ArrayList<>();
+        for (int i = 0; properties.containsKey(COMMAND + i); i++) {
+            command.add(properties.getProperty(COMMAND + i));
+        }
+        Map<String, String> environment = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(ENVIRONMENT)) {
+                environment.put(name.substring(ENVIRONMENT.length()), properties.getProperty(name));
+            }
+        }
+        return new LaunchDescriptor(
+                command,
+                new File(properties.getProperty(DIRECTORY)),
+                environment,
+                Integer.parseInt(properties.getProperty(START_TIMEOUT)));
+    }
+
+    void write(File file) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < command.size(); i++) {
+            properties.setProperty(COMMAND + i, command.get(i));
+        }
+        environment.forEach((name, value) -> properties.setProperty(ENVIRONMENT + name, value));
+        properties.setProperty(DIRECTORY, directory.getAbsolutePath());
+        properties.setProperty(START_TIMEOUT, String.valueOf(startTimeoutSeconds));
+        Files.createDirectories(file.getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            properties.store(out, "Generated by the feature-launcher-maven-plugin");
+        }
+    }
+
+    ProcessBuilder toProcessBuilder() {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(directory);
+        pb.environment().putAll(environment);
+        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        return pb;
+    }
+
+    List<String> getCommand() {
+        return command;
+    }
+
+    int getStartTimeoutSeconds() {
+        return startTimeoutSeconds;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the output of a launch with {@code logStore} enabled, e.g. from integration tests, without scanning the whole
+ * build log. Lines are addressed by their number, starting at {@code 0}, so a test can remember where it started
+ * and only look at later output.
+ *
+ * <p>The store is a directory with these files, which are only ever appended to while the launch is running:</p>
+ * <ul>
+ *   <li>{@code segment-<n>.log}: the lines of output, in segments of up to 16 MiB</li>
+ *   <li>{@code index.bin}: a record of {@value #RECORD_SIZE} bytes per line, containing the arrival time in
+ *   milliseconds (long), segment (int), offset in the segment (int), length in bytes (int), {@link Level} ordinal
+ *   (byte) and logger number (int, {@code 0} if unknown)</li>
+ *   <li>{@code loggers.txt}: the logger names, the logger number being the line number starting at {@code 1}</li>
+ * </ul>
+ *
+ * <p>This class only depends on the JDK, so the plugin can be added as a test dependency to use it.</p>
+ */
+public final class LaunchLog {
+
+    /**
+     * The system property pointing to the directory containing the log stores, by default
+     * {@code target/feature-launcher}.
+     */
+    public static final String DIRECTORY_PROPERTY = "feature-launcher.logs";
+
+    static final int RECORD_SIZE = 8 + 4 + 4 + 4 + 1 + 4;
+
+    static final String INDEX = "index.bin";
+
+    static final String LOGGERS = "loggers.txt";
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final int RECORDS_PER_READ = 4096;
+
+    /**
+     * The level of a line, as far as it could be recognized.
+     */
+    public enum Level {
+        UNKNOWN,
+        TRACE,
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR;
+
+        static Level parse(String level) {
+            String upper = level.toUpperCase(Locale.ROOT);
+            return "WARNING".equals(upper) ? WARN : valueOf(upper);
+        }
+    }
+
+    /**
+     * A line of output.
+     */
+    public static final class Entry {
+        private final long number;
+        private final long timestamp;
+        private final Level level;
+        private final String logger;
+        private final String text;
+
+        Entry(long number, long timestamp, Level level, String logger, String text) {
+            this.number = number;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.text = text;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * @return the time the plugin received the line, in milliseconds since the epoch
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        /**
+         * @return the logger, empty if it could not be recognized
+         */
+        public Optional<String> getLogger() {
+            return Optional.ofNullable(logger);
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return number + ": " + text;
+        }
+    }
+
+    private final Path directory;
+    private List<String> loggers = new ArrayList<>();
+
+    private LaunchLog(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the log store of a launch below the directory given by {@link #DIRECTORY_PROPERTY}.
+     *
+     * @param launchId the id of the launch
+     * @return the log of the launch
+     */
+    public static LaunchLog open(String launchId) {
+        String parent = System.getProperty(DIRECTORY_PROPERTY, "target/feature-launcher");
+        return open(Paths.get(parent, launchId + "-log"));
+    }
+
+    public static LaunchLog open(Path directory) {
+        return new LaunchLog(directory);
+    }
+
+    static Path segmentFile(Path directory, int segment) {
+        return directory.resolve(String.format("segment-%05d.log", segment));
+    }
+
+    /**
+     * @return the number of lines in the store, i.e. the number of the next line
+     * @throws IOException if the store cannot be read
+     */
+    public long size() throws IOException {
+        Path index = directory.resolve(INDEX);
+        return Files.exists(index) ? Files.size(index) / RECORD_SIZE : 0;
+    }
+
+    /**
+     * Finds the lines matching all given criteria.
+     *
+     * @param from the number of the first line to look at
+     * @param minLevel the minimum level of the lines, {@link Level#UNKNOWN} for all lines
+     * @param loggerPrefix the prefix of the loggers of the lines, {@code null} for all loggers
+     * @param pattern the pattern to find in the lines, {@code null} for all lines
+     * @return the matching lines
+     * @throws IOException if the store cannot be read
+     */
+    public List<Entry> query(long from, Level minLevel, String loggerPrefix, Pattern pattern) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long size = size();
+        if (from >= size) {
+            return entries;
+        }
+        Map<Integer, FileChannel> segments = new HashMap<>();
+        try (FileChannel index = FileChannel.open(directory.resolve(INDEX), StandardOpenOption.READ)) {
+            // the records are read in bulk, as await queries on every poll
+            ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * RECORDS_PER_READ);
+            long position = from * RECORD_SIZE;
+            long number = from;
+            while (number < size) {
+                records.clear();
+                records.limit((int) Math.min(records.capacity(), (size - number) * RECORD_SIZE));
+                while (records.hasRemaining()) {
+                    if (index.read(records, position + records.position()) < 0) {
+                        throw new EOFException("Index of " + directory + " ends before line " + size);
+                    }
+                }
+                records.flip();
+                position += records.limit();
+                while (records.hasRemaining()) {
+                    long timestamp = records.getLong();
+                    int segment = records.getInt();
+                    int offset = records.getInt();
+                    int length = records.getInt();
+                    Level level = Level.values()[records.get()];
+                    String logger = logger(records.getInt());
+                    if (level.compareTo(minLevel) >= 0
+                            && (loggerPrefix == null || (logger != null && logger.startsWith(loggerPrefix)))) {
+                        String text = read(segments, segment, offset, length);
+                        if (pattern == null || pattern.matcher(text).find()) {
+                            entries.add(new Entry(number, timestamp, level, logger, text));
+                        }
+                    }
+                    number++;
+                }
+            }
+        } finally {
+            for (FileChannel segment : segments.values()) {
+                segment.close();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Waits for a line matching the pattern.
+     *
+     * @param from the number of the first line to look at
+     * @param pattern the pattern to find
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return the first matching line, empty if none was written in time
+     * @throws IOException if the store cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Optional<Entry> await(long from, Pattern pattern, long timeout, TimeUnit unit)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long next = from;
+        while (true) {
+            long size = size();
+            List<Entry> matches = query(next, Level.UNKNOWN, null, pattern);
+            if (!matches.isEmpty()) {
+                return Optional.of(matches.get(0));
+            }
+            next = Math.max(next, size);
+            if (System.nanoTime() - deadline >= 0) {
+                return Optional.empty();
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    private String logger(int id) throws IOException {
+        if (id == 0) {
+            return null;
+        }
+        if (id > loggers.size()) {
+            loggers = Files.readAllLines(directory.resolve(LOGGERS), StandardCharsets.UTF_8);
+        }
+        return id <= loggers.size() ? loggers.get(id - 1) : null;
+    }
+
+    private String read(Map<Integer, FileChannel> segments, int segment, int offset, int length) throws IOException {
+        FileChannel file = segments.get(segment);
+        if (file == null) {
+            file = FileChannel.open(segmentFile(directory, segment), StandardOpenOption.READ);
+            segments.put(segment, file);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (file.read(bytes, offset + bytes.position()) < 0) {
+                throw new EOFException("Segment " + segment + " of " + directory + " ends before line at " + offset);
+            }
+        }
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+}
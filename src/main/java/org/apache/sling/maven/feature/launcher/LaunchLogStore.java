@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Writes the output of a launch to a {@link LaunchLog log store}: the lines go to segment files of limited size, and
+ * each line gets a fixed-size record in an index file, with its arrival time, level, logger and location.
+ *
+ * <p>The line is written and flushed before its index record, so a reader never sees a record whose line is
+ * incomplete.</p>
+ *
+ * <p>There is at most one open store per directory. When a launch is restarted, opening the store for the new process
+ * waits until the monitor of the old process wrote its remaining output and closed the store, or closes it after a
+ * timeout, so that the two writers never append to the same segment.</p>
+ */
+class LaunchLogStore implements Closeable {
+
+    static final long SEGMENT_SIZE = 16L * 1024L * 1024L;
+
+    private static final long HANDOVER_TIMEOUT_MILLIS = 30_000;
+
+    private static final Map<Path, LaunchLogStore> OPEN_STORES = new HashMap<>();
+
+    /**
+     * Matches the level and logger of the common formats, e.g. {@code [main] INFO org.example.Foo - message} and
+     * {@code 18.10.2026 10:00:00.000 *INFO* [main] org.example.Foo message}.
+     */
+    private static final Pattern LEVEL_AND_LOGGER = Pattern.compile(
+            "(?:^|[\\s*\\[])(TRACE|DEBUG|INFO|WARN|WARNING|ERROR)[\\s*\\]:]+(?:\\[[^\\]]*\\]\\s+)?([\\w$]+(?:\\.[\\w$]+)+)?");
+
+    private final Path directory;
+    private final Map<String, Integer> loggers = new HashMap<>();
+    private int segment;
+    private long segmentSize;
+    private OutputStream segmentOut;
+    private final DataOutputStream indexOut;
+    private final OutputStream loggersOut;
+    private boolean closed;
+
+    private LaunchLogStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<String> knownLoggers = Files.exists(directory.resolve(LaunchLog.LOGGERS))
+                ? Files.readAllLines(directory.resolve(LaunchLog.LOGGERS), StandardCharsets.UTF_8)
+                : Collections.emptyList();
+        for (int i = 0; i < knownLoggers.size(); i++) {
+            loggers.put(knownLoggers.get(i), i + 1);
+        }
+        while (Files.exists(LaunchLog.segmentFile(directory, segment + 1))) {
+            segment++;
+        }
+        Path segmentFile = LaunchLog.segmentFile(directory, segment);
+        segmentSize = Files.exists(segmentFile) ? Files.size(segmentFile) : 0;
+        segmentOut = append(segmentFile);
+        Path index = directory.resolve(LaunchLog.INDEX);
+        if (Files.exists(index) && Files.size(index) % LaunchLog.RECORD_SIZE != 0) {
+            // drop the incomplete record of a writer which was killed
+            try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+                channel.truncate(Files.size(index) / LaunchLog.RECORD_SIZE * LaunchLog.RECORD_SIZE);
+            }
+        }
+        indexOut = new DataOutputStream(append(index));
+        loggersOut = append(directory.resolve(LaunchLog.LOGGERS));
+    }
+
+    /**
+     * Opens a log store, appending to the lines it already contains.
+     *
+     * @param directory the directory of the store
+     * @return the store
+     * @throws IOException if the store cannot be opened
+     */
+    static LaunchLogStore open(File directory) throws IOException {
+        Path path = directory.toPath().toAbsolutePath().normalize();
+        synchronized (OPEN_STORES) {
+            LaunchLogStore previous = OPEN_STORES.get(path);
+            if (previous != null) {
+                long deadline = System.currentTimeMillis() + HANDOVER_TIMEOUT_MILLIS;
+                try {
+                    for (long wait = HANDOVER_TIMEOUT_MILLIS;
+                            OPEN_STORES.get(path) == previous && wait > 0;
+                            wait = deadline - System.currentTimeMillis()) {
+                        OPEN_STORES.wait(wait);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the log store " + path);
+                }
+                if (OPEN_STORES.get(path) == previous) {
+                    previous.close();
+                }
+            }
+            LaunchLogStore store = new LaunchLogStore(path);
+            OPEN_STORES.put(path, store);
+            return store;
+        }
+    }
+
+    /**
+     * Deletes a log store, so that it starts empty on the next launch.
+     *
+     * @param directory the directory of the store
+     * @throws IOException if deleting fails
+     */
+    static void delete(File directory) throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private static OutputStream append(Path file) throws IOException {
+        return new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Appends a line, unless the store was closed, e.g. because a new process of the launch took it over.
+     */
+    synchronized void append(String line) throws IOException {
+        if (closed) {
+            return;
+        }
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        if (segmentSize > 0 && segmentSize + bytes.length > SEGMENT_SIZE) {
+            segmentOut.close();
+            segment++;
+            segmentSize = 0;
+            segmentOut = append(LaunchLog.segmentFile(directory, segment));
+        }
+        long offset = segmentSize;
+        segmentOut.write(bytes);
+        segmentOut.flush();
+        segmentSize += bytes.length;
+
+        LaunchLog.Level level = LaunchLog.Level.UNKNOWN;
+        int logger = 0;
+        Matcher m = LEVEL_AND_LOGGER.matcher(line);
+        if (m.find()) {
+            level = LaunchLog.Level.parse(m.group(1));
+            if (m.group(2) != null) {
+                logger = loggerId(m.group(2));
+            }
+        }
+        indexOut.writeLong(System.currentTimeMillis());
+        indexOut.writeInt(segment);
+        indexOut.writeInt((int) offset);
+        indexOut.writeInt(bytes.length - 1);
+        indexOut.writeByte(level.ordinal());
+        indexOut.writeInt(logger);
+        indexOut.flush();
+    }
+
+    private int loggerId(String logger) throws IOException {
+        Integer id = loggers.get(logger);
+        if (id == null) {
+            id = loggers.size() + 1;
+            loggers.put(logger, id);
+            loggersOut.write((logger + "\n").getBytes(StandardCharsets.UTF_8));
+            loggersOut.flush();
+        }
+        return id;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    segmentOut.close();
+                } finally {
+                    try {
+                        indexOut.close();
+                    } finally {
+                        loggersOut.close();
+                    }
+                }
+            }
+        } finally {
+            synchronized (OPEN_STORES) {
+                OPEN_STORES.remove(directory, this);
+                OPEN_STORES.notifyAll();
+            }
+        }
+    }
+}
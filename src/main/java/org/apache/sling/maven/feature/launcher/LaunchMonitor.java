@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Passes through the output of a launched process and watches it for the start of the framework.
+ *
+ * <p>Besides the start it records when the process last wrote output, which allows to detect a boot which stopped
+ * progressing.</p>
+ */
+class LaunchMonitor extends Thread {
+
+    private static final String FRAMEWORK_STARTED = "Framework started";
+
+    private static final int OUTPUT_TAIL_LINES = 50;
+
+    private final Process process;
+    private final String outputPrefix;
+    private final Log log;
+    private final BootTimeline timeline;
+    private final LaunchLogStore store;
+    private final Deque<String> outputTail = new ArrayDeque<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile boolean frameworkStarted;
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    /**
+     * @param launchId the id of the launch
+     * @param process the launched process
+     * @param outputPrefix the prefix of each passed through line of output
+     * @param timeline the timeline to pass the output to until the framework started, may be {@code null}
+     * @param store the store to capture all output of the process in, may be {@code null}; it is closed once the
+     *     process ended
+     * @param log the log
+     */
+    LaunchMonitor(
+            String launchId,
+            Process process,
+            String outputPrefix,
+            BootTimeline timeline,
+            LaunchLogStore store,
+            Log log) {
+        super("launch-monitor-" + launchId);
+        this.process = process;
+        this.outputPrefix = outputPrefix;
+        this.timeline = timeline;
+        this.store = store;
+        this.log = log;
+    }
+
+    @Override
+    public void run() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                if (store != null) {
+                    store.append(line);
+                    if (started.getCount() == 0) {
+                        continue;
+                    }
+                }
+                long now = System.nanoTime();
+                lastActivityNanos = now;
+                System.out.println(outputPrefix + line); // NOSONAR - we pass through the subprocess stderr
+                synchronized (outputTail) {
+                    if (outputTail.size() == OUTPUT_TAIL_LINES) {
+                        outputTail.removeFirst();
+                    }
+                    outputTail.addLast(line);
+                }
+                if (timeline != null) {
+                    timeline.accept(line, now);
+                }
+                if (line.contains(FRAMEWORK_STARTED)) {
+                    if (timeline != null) {
+                        timeline.ready(now);
+                    }
+                    frameworkStarted = true;
+                    started.countDown();
+                    if (store == null) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn(e.getMessage(), e);
+        } finally {
+            // wakes up the waiters if the process ended before the framework was started
+            started.countDown();
+            if (store != null) {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    log.warn("Failed closing log store: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until the framework was started.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if the framework was started, {@code false} if the timeout elapsed or the process ended
+     *     before
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit) && frameworkStarted;
+    }
+
+    /**
+     * @return whether the process ended before the framework was started
+     */
+    boolean hasEndedBeforeStart() {
+        return started.getCount() == 0 && !frameworkStarted;
+    }
+
+    /**
+     * @return the last lines the process wrote before the framework was started
+     */
+    List<String> getOutputTail() {
+        synchronized (outputTail) {
+            return new ArrayList<>(outputTail);
+        }
+    }
+
+    /**
+     * @return the value of {@link System#nanoTime()} when the process last wrote a line of output
+     */
+    long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+}
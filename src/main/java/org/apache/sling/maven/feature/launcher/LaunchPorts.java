@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the ports a launch listens on from its configuration, to detect conflicts before it is started rather than
+ * by a failing test.
+ *
+ * <p>A port is any framework property whose name has a segment {@code port}, e.g.
+ * {@code org.osgi.service.http.port} or {@code org.osgi.service.http.port.secure}, and whose value is a port number.
+ * Variables and system properties are not considered, as they often point to services outside of the launch.</p>
+ */
+final class LaunchPorts {
+
+    private LaunchPorts() {}
+
+    static Set<Integer> of(Launch launch) {
+        Set<Integer> ports = new TreeSet<>();
+        Map<String, String> properties = launch.getLauncherArguments().getFrameworkProperties();
+        if (properties != null) {
+            properties.forEach((name, value) -> addPort(name, value, ports));
+        }
+        return ports;
+    }
+
+    private static void addPort(String name, String value, Set<Integer> ports) {
+        if (value == null || !Arrays.asList(name.toLowerCase().split("[._-]")).contains("port")) {
+            return;
+        }
+        try {
+            int port = Integer.parseInt(value.trim());
+            if (port > 0 && port <= 65535) {
+                ports.add(port);
+            }
+        } catch (NumberFormatException e) {
+            // not a port number, e.g. a placeholder
+        }
+    }
+
+    /**
+     * @return whether nothing listens on the port yet
+     */
+    static boolean isFree(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            // a port only held by connections in TIME_WAIT can still be bound by the launch
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Restarts a running launch according to its {@link Recycling} policy, at the test class boundaries signalled
+ * through {@link LaunchRecycling}.
+ */
+class LaunchRecycler {
+
+    private static final long MEBIBYTE = 1024L * 1024L;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final Launch launch;
+    private final Recycling policy;
+    private final LaunchRunner runner;
+    private final ProcessTracker processes;
+    private final File workDir;
+    private final File directory;
+    private final Log log;
+    private final ScheduledExecutorService executor;
+
+    // the requests which were counted but not answered yet, with the error to answer them with, if any
+    private final Map<Path, String> unanswered = new HashMap<>();
+
+    private long startMillis = System.currentTimeMillis();
+    private int testClasses;
+    private volatile long heapAfterGc;
+
+    LaunchRecycler(Launch launch, LaunchRunner runner, ProcessTracker processes, File outputDirectory, Log log) {
+        this.launch = launch;
+        this.policy = launch.getRecycling().get();
+        this.runner = runner;
+        this.processes = processes;
+        this.workDir = new File(outputDirectory, "launchers");
+        this.directory = launch.getReportFile(outputDirectory, "-control");
+        this.log = log;
+        this.executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "launch-recycler-" + launch.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the control directory and starts watching it and, if the policy has a heap limit, the heap.
+     *
+     * @throws IOException if the control directory cannot be created
+     */
+    void start() throws IOException {
+        if (directory.exists()) {
+            FileUtils.deleteDirectory(directory);
+        }
+        Files.createDirectories(directory.toPath());
+        executor.scheduleWithFixedDelay(this::handleRequests, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (policy.getMaxHeapAfterGcMb() > 0) {
+            int interval = policy.getSampleIntervalSeconds();
+            executor.scheduleWithFixedDelay(this::sampleHeap, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops watching the launch, after a restart in progress completed, and removes the control directory.
+     *
+     * @throws InterruptedException if interrupted while waiting for a restart in progress
+     */
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(launch.getStartTimeoutSeconds() + 60L, TimeUnit.SECONDS)) {
+            log.warn("Recycling of launch " + launch.getId() + " did not stop in time");
+            executor.shutdownNow();
+        }
+        try {
+            FileUtils.deleteDirectory(directory);
+        } catch (IOException e) {
+            log.debug("Failed deleting control directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns why a launch has to be restarted.
+     *
+     * @param policy the recycling policy
+     * @param testClasses the number of test classes finished since the last start
+     * @param uptimeMillis the time since the last start
+     * @param heapAfterGc the heap usage after the last GC in bytes
+     * @return the reason, empty if the launch can keep running
+     */
+    static Optional<String> reason(Recycling policy, int testClasses, long uptimeMillis, long heapAfterGc) {
+        if (policy.getAfterTestClasses() > 0 && testClasses >= policy.getAfterTestClasses()) {
+            return Optional.of(testClasses + " test classes ran");
+        }
+        if (policy.getMaxUptimeMinutes() > 0
+                && uptimeMillis >= TimeUnit.MINUTES.toMillis(policy.getMaxUptimeMinutes())) {
+            return Optional.of("it ran for " + TimeUnit.MILLISECONDS.toMinutes(uptimeMillis) + " minutes");
+        }
+        if (policy.getMaxHeapAfterGcMb() > 0 && heapAfterGc > policy.getMaxHeapAfterGcMb() * MEBIBYTE) {
+            return Optional.of("its heap usage after GC is " + heapAfterGc / MEBIBYTE + " MiB");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the pending requests of the control directory, the oldest first
+     */
+    static List<Path> pendingRequests(File directory) throws IOException {
+        List<Path> requests = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory.toPath())) {
+            requests.addAll(files.filter(p -> p.getFileName().toString().endsWith(LaunchRecycling.REQUEST))
+                    .collect(Collectors.toList()));
+        }
+        requests.sort(Comparator.comparing(LaunchRecycler::lastModified).thenComparing(Path::getFileName));
+        return requests;
+    }
+
+    /**
+     * Answers a request, so that the test side continues with the next test class.
+     */
+    static void complete(Path request) throws IOException {
+        Files.write(answer(request, LaunchRecycling.DONE), new byte[0]);
+        Files.deleteIfExists(request);
+    }
+
+    /**
+     * Answers a request with an error, so that the test side fails right away instead of waiting for its timeout.
+     */
+    static void fail(Path request, String error) throws IOException {
+        Path failed = answer(request, LaunchRecycling.FAILED);
+        // written completely before it appears, as the test side reads it as soon as it exists
+        Path temporary = failed.resolveSibling(failed.getFileName() + ".tmp");
+        Files.write(temporary, error.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, failed, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(request);
+    }
+
+    private static Path answer(Path request, String suffix) {
+        String name = request.getFileName().toString();
+        return request.resolveSibling(name.substring(0, name.length() - LaunchRecycling.REQUEST.length()) + suffix);
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void handleRequests() {
+        List<Path> requests;
+        try {
+            if (!directory.isDirectory()) {
+                return;
+            }
+            requests = pendingRequests(directory);
+        } catch (IOException e) {
+            log.warn("Failed reading the recycling requests of launch " + launch.getId() + ": " + e.getMessage(), e);
+            return;
+        }
+        // requests withdrawn by the test side after its timeout
+        unanswered.keySet().retainAll(requests);
+        for (Path request : requests) {
+            if (!unanswered.containsKey(request)) {
+                // counted once, even if answering it fails and is retried with the next poll
+                unanswered.put(request, null);
+                testClasses++;
+                try {
+                    Optional<String> reason =
+                            reason(policy, testClasses, System.currentTimeMillis() - startMillis, heapAfterGc);
+                    if (reason.isPresent()) {
+                        recycle(reason.get());
+                    }
+                } catch (IOException | MojoExecutionException | RuntimeException e) {
+                    log.warn("Failed recycling launch " + launch.getId() + ": " + e.getMessage(), e);
+                    unanswered.put(request, String.valueOf(e.getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    unanswered.put(request, "Recycling was interrupted");
+                }
+            }
+            try {
+                String error = unanswered.get(request);
+                if (error == null) {
+                    complete(request);
+                } else {
+                    fail(request, error);
+                }
+                unanswered.remove(request);
+            } catch (IOException e) {
+                log.warn("Failed answering recycling request " + request + ": " + e.getMessage(), e);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private void recycle(String reason) throws IOException, InterruptedException, MojoExecutionException {
+        String key = runner.key(launch);
+        Optional<ProcessBuilder> command = processes.getCommand(key);
+        if (!command.isPresent()) {
+            log.warn("Launch " + launch.getId() + " is not running, skip recycling it");
+            return;
+        }
+        log.info("Recycling launch " + launch.getId() + " as " + reason);
+        processes.stopForRestart(key);
+        if (policy.isRestoreSnapshot()) {
+            new LaunchSnapshot(launch, workDir, log).restore();
+        }
+        runner.start(launch, command.get());
+        runner.warmUp(launch);
+        startMillis = System.currentTimeMillis();
+        testClasses = 0;
+        heapAfterGc = 0;
+    }
+
+    /**
+     * Samples the heap usage after the last GC of each heap pool, without forcing a GC.
+     */
+    private void sampleHeap() {
+        Optional<ProcessHandle> jvm = processes.get(runner.key(launch)).flatMap(Jcmd::findJvm);
+        if (!jvm.isPresent()) {
+            return;
+        }
+        try (JvmConnection connection = JvmConnection.attach(jvm.get())) {
+            long used = 0;
+            for (MemoryPoolMXBean pool : connection.getPlatformMXBeans(MemoryPoolMXBean.class)) {
+                MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+                if (usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+            heapAfterGc = used;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed sampling heap of launch " + launch.getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signals the end of a test class to the {@code start} goal, which restarts the launch at this point if its
+ * {@code recycling} policy says so, e.g. from a JUnit 4 {@code @AfterClass} method or a JUnit 5
+ * {@code AfterAllCallback}.
+ *
+ * <p>The signal is a file {@code <id>.request} in the control directory of the launch,
+ * {@code target/feature-launcher/<launch-id>-control}. The plugin answers each request with a file
+ * {@code <id>.done} once the launch is ready for the next test class, i.e. immediately or after the restart, or with
+ * a file {@code <id>.failed} containing the error if restarting the launch failed. The
+ * control directory only exists while a launch with a recycling policy is running, so the call returns immediately
+ * otherwise.</p>
+ *
+ * <p>This class only depends on the JDK, so the plugin can be added as a test dependency to use it.</p>
+ */
+public final class LaunchRecycling {
+
+    /**
+     * The system property pointing to the directory containing the control directories, by default
+     * {@code target/feature-launcher}.
+     */
+    public static final String DIRECTORY_PROPERTY = "feature-launcher.control";
+
+    /**
+     * The system property with the maximum time to wait for a restart in seconds, by default 600.
+     */
+    public static final String TIMEOUT_PROPERTY = "feature-launcher.recycleTimeoutSeconds";
+
+    static final String REQUEST = ".request";
+
+    static final String DONE = ".done";
+
+    static final String FAILED = ".failed";
+
+    private static final long POLL_MILLIS = 100;
+
+    private LaunchRecycling() {}
+
+    /**
+     * Signals that a test class using the launch finished and waits until the launch is ready for the next one.
+     *
+     * @param launchId the id of the launch
+     * @throws IOException if the signal cannot be written, restarting the launch failed or the launch is not ready in
+     *     time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void testClassFinished(String launchId) throws IOException, InterruptedException {
+        File directory = controlDirectory(launchId);
+        if (!directory.isDirectory()) {
+            return;
+        }
+        String id = UUID.randomUUID().toString();
+        Path request = directory.toPath().resolve(id + REQUEST);
+        Path temporary = directory.toPath().resolve(id + ".tmp");
+        Files.write(temporary, new byte[0]);
+        Files.move(temporary, request, StandardCopyOption.ATOMIC_MOVE);
+
+        Path done = directory.toPath().resolve(id + DONE);
+        Path failed = directory.toPath().resolve(id + FAILED);
+        long timeoutSeconds = Long.getLong(TIMEOUT_PROPERTY, 600);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (!Files.exists(done)) {
+            if (Files.exists(failed)) {
+                String error = new String(Files.readAllBytes(failed), StandardCharsets.UTF_8);
+                Files.deleteIfExists(failed);
+                throw new IOException(
+                        "Launch " + launchId + " could not be restarted for the next test class: " + error);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                Files.deleteIfExists(request);
+                throw new IOException("Launch " + launchId + " was not ready for the next test class in "
+                        + timeoutSeconds + " seconds");
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        Files.deleteIfExists(done);
+    }
+
+    static File controlDirectory(String launchId) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY, "target/feature-launcher");
+        return new File(directory, launchId + "-control");
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Starts the process of a launch, waits for its framework to be started and registers it with the
+ * {@link ProcessTracker}.
+ */
+class LaunchRunner {
+
+    private final ProcessTracker processes;
+    private final File outputDirectory;
+    private final boolean trackProcess;
+    private final boolean prefixOutput;
+    private final Log log;
+
+    /**
+     * @param processes the process tracker
+     * @param outputDirectory the build output directory
+     * @param trackProcess whether to track the started processes
+     * @param prefixOutput whether to prefix the passed through output with the launch id, e.g. as the output of
+     *     parallel module builds is interleaved
+     * @param log the log
+     */
+    LaunchRunner(ProcessTracker processes, File outputDirectory, boolean trackProcess, boolean prefixOutput, Log log) {
+        this.processes = processes;
+        this.outputDirectory = outputDirectory;
+        this.trackProcess = trackProcess;
+        this.prefixOutput = prefixOutput;
+        this.log = log;
+    }
+
+    /**
+     * @return the key of the launch in the {@link ProcessTracker}
+     */
+    String key(Launch launch) {
+        return launch.getQualifiedId(outputDirectory);
+    }
+
+    /**
+     * Starts a launch and waits until its framework was started.
+     *
+     * @param launch the launch
+     * @param pb the process builder for the launch
+     * @return the started process
+     * @throws IOException if starting the process fails
+     * @throws InterruptedException if interrupted while waiting
+     * @throws MojoExecutionException if the framework did not start in time
+     */
+    Process start(Launch launch, ProcessBuilder pb) throws IOException, InterruptedException, MojoExecutionException {
+        return await(spawn(launch, pb));
+    }
+
+    /**
+     * Starts the process of a launch without waiting for its framework to start.
+     *
+     * @param launch the launch
+     * @param pb the process builder for the launch
+     * @return the pending launch to {@link #await(PendingLaunch) await}
+     * @throws IOException if starting the process fails
+     */
+    PendingLaunch spawn(Launch launch, ProcessBuilder pb) throws IOException {
+        long spawnNanos = System.nanoTime();
+        BootTimeline timeline = launch.getBootProfile()
+                .map(p -> new BootTimeline(p, spawnNanos))
+                .orElse(null);
+        LaunchLogStore store = launch.isLogStore() ? LaunchLogStore.open(getLogStoreDirectory(launch)) : null;
+        Process process;
+        try {
+            process = pb.start();
+        } catch (IOException e) {
+            if (store != null) {
+                store.close();
+            }
+            throw e;
+        }
+
+        if (!trackProcess) {
+            processes.holdMemory(key(launch), process.toHandle());
+        }
+
+        LaunchMonitor monitor = new LaunchMonitor(
+                launch.getId(), process, prefixOutput ? "[" + launch.getId() + "] " : "", timeline, store, log);
+        monitor.start();
+        return new PendingLaunch(launch, pb, process, monitor, timeline, spawnNanos);
+    }
+
+    /**
+     * @return the directory of the log store of the launch
+     */
+    File getLogStoreDirectory(Launch launch) {
+        return launch.getReportFile(outputDirectory, "-log");
+    }
+
+    /**
+     * Waits until the framework of a spawned launch was started, with the start timeout counting from the spawn, and
+     * registers it with the {@link ProcessTracker}.
+     *
+     * @param pending the spawned launch
+     * @return the started process
+     * @throws InterruptedException if interrupted while waiting
+     * @throws MojoExecutionException if the framework did not start in time
+     */
+    Process await(PendingLaunch pending) throws InterruptedException, MojoExecutionException {
+        Launch launch = pending.getLaunch();
+        Process process = pending.getProcess();
+        boolean alreadyTracked =
+                processes.get(key(launch)).filter(p -> p == process).isPresent();
+        log.info("Waiting for " + launch.getId() + " to start");
+        boolean started = waitForStart(pending);
+        if (!started) {
+            if (alreadyTracked) {
+                processes.stop(key(launch));
+            } else {
+                ProcessTracker.stop(process);
+                processes.releaseMemory(key(launch));
+                processes.releasePorts(key(launch));
+            }
+            List<String> output = pending.getMonitor().getOutputTail();
+            throw new MojoExecutionException("Launch " + launch.getId()
+                    + (pending.getMonitor().hasEndedBeforeStart()
+                            ? " ended before its framework was started."
+                            : " failed to start in " + launch.getStartTimeoutSeconds() + " seconds.")
+                    + (output.isEmpty()
+                            ? ""
+                            : " Last output:" + System.lineSeparator() + String.join(System.lineSeparator(), output)));
+        }
+        if (pending.getTimeline() != null) {
+            reportBoot(launch, pending.getTimeline());
+        }
+
+        if (trackProcess) {
+            if (!alreadyTracked) {
+                processes.startTracking(key(launch), process);
+            }
+            processes.setCommand(key(launch), pending.getCommand());
+            if (launch.getTelemetryIntervalSeconds() > 0) {
+                startTelemetry(launch, process);
+            }
+            if (launch.getSoak().isPresent()) {
+                startSoak(launch, process);
+            }
+        } else if (launch.getSoak().isPresent()) {
+            log.warn("Launch " + launch.getId() + " can only soak if its process is tracked, skip soaking");
+        }
+        return process;
+    }
+
+    /**
+     * Finishes the start of a launch whose framework was started: takes its snapshot, if enabled, warms it up and
+     * starts recycling it.
+     *
+     * @param launch the launch
+     * @param pb the process builder for the launch
+     * @param process the process of the launch
+     * @throws IOException if taking the snapshot, restarting the launch or creating its control directory fails
+     * @throws InterruptedException if interrupted while waiting
+     * @throws MojoExecutionException if the framework did not start in time after taking the snapshot, or the warm-up
+     *     failed
+     */
+    void completeStart(Launch launch, ProcessBuilder pb, Process process)
+            throws IOException, InterruptedException, MojoExecutionException {
+        if (launch.isSnapshot()) {
+            stopForRestart(launch, process);
+            new LaunchSnapshot(launch, new File(outputDirectory, "launchers"), log).take();
+            start(launch, pb);
+        }
+        warmUp(launch);
+        if (launch.getRecycling().isPresent()) {
+            if (trackProcess) {
+                LaunchRecycler recycler = new LaunchRecycler(launch, this, processes, outputDirectory, log);
+                recycler.start();
+                processes.startRecycling(key(launch), recycler);
+            } else {
+                log.warn("Launch " + launch.getId() + " can only be recycled if its process is tracked, skip it");
+            }
+        }
+    }
+
+    /**
+     * Sends the warm-up requests of a launch, if it has any.
+     *
+     * @param launch the started launch
+     * @throws InterruptedException if interrupted while warming up
+     * @throws MojoExecutionException if no warm-up request succeeded and the warm-up is configured to fail then
+     */
+    void warmUp(Launch launch) throws InterruptedException, MojoExecutionException {
+        if (!launch.getWarmup().isPresent()) {
+            return;
+        }
+        Warmup warmup = launch.getWarmup().get();
+        if (new Warmer(launch.getId(), warmup, log).run()) {
+            return;
+        }
+        if (warmup.isFailOnError()) {
+            throw new MojoExecutionException("Warm-up of launch " + launch.getId() + " failed, no request succeeded in "
+                    + warmup.getMaxDurationSeconds() + " seconds");
+        }
+        log.warn("Continuing with launch " + launch.getId() + " without warming it up");
+    }
+
+    /**
+     * Stops a launch which is about to be started again, keeping what is tracked about it besides its process.
+     *
+     * @param launch the launch
+     * @param process the process of the launch
+     * @throws InterruptedException if interrupted while waiting for the process to stop
+     */
+    void stopForRestart(Launch launch, Process process) throws InterruptedException {
+        if (trackProcess) {
+            processes.stopForRestart(key(launch));
+        } else {
+            ProcessTracker.stop(process);
+        }
+    }
+
+    /**
+     * Waits for the launch to start. If the launch has a stall timeout, thread dumps are captured each time its
+     * output did not progress for that long, and once more before giving up.
+     */
+    private boolean waitForStart(PendingLaunch pending) throws InterruptedException {
+        Launch launch = pending.getLaunch();
+        Process process = pending.getProcess();
+        LaunchMonitor monitor = pending.getMonitor();
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(launch.getStartTimeoutSeconds());
+        long stallNanos = TimeUnit.SECONDS.toNanos(launch.getStallTimeoutSeconds());
+        long deadline = pending.getSpawnNanos() + timeoutNanos;
+        if (stallNanos <= 0) {
+            return monitor.awaitStarted(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        }
+
+        long lastDump = Long.MIN_VALUE;
+        int dumps = 0;
+        while (true) {
+            if (monitor.awaitStarted(0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (monitor.hasEndedBeforeStart()) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (now - deadline >= 0) {
+                dumpThreads(launch, process, ++dumps);
+                return false;
+            }
+            long stalledSince = Math.max(monitor.getLastActivityNanos(), lastDump);
+            long wait = Math.min(deadline - now, Math.max(stalledSince + stallNanos - now, 0));
+            if (monitor.awaitStarted(wait, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            now = System.nanoTime();
+            if (now - Math.max(monitor.getLastActivityNanos(), lastDump) >= stallNanos && deadline - now > 0) {
+                log.warn("Launch " + launch.getId() + " did not make progress for " + launch.getStallTimeoutSeconds()
+                        + " seconds");
+                dumpThreads(launch, process, ++dumps);
+                lastDump = System.nanoTime();
+            }
+        }
+    }
+
+    private void dumpThreads(Launch launch, Process process, int sequence) throws InterruptedException {
+        File dumpFile = launch.getReportFile(outputDirectory, "-threads-" + sequence + ".txt");
+        List<ProcessHandle> jvms = Jcmd.findJvms(process);
+        if (jvms.isEmpty()) {
+            log.warn("No JVM found for launch " + launch.getId() + ", skip capturing a thread dump");
+            return;
+        }
+        try {
+            Files.createDirectories(dumpFile.getParentFile().toPath());
+            StringBuilder dump = new StringBuilder();
+            for (ProcessHandle jvm : jvms) {
+                dump.append("# pid ").append(jvm.pid()).append(System.lineSeparator());
+                dump.append(Jcmd.execute(jvm, "Thread.print", "-l")).append(System.lineSeparator());
+            }
+            Files.write(dumpFile.toPath(), dump.toString().getBytes(StandardCharsets.UTF_8));
+            log.warn("Captured thread dump of launch " + launch.getId() + " in " + dumpFile);
+        } catch (IOException e) {
+            log.warn("Failed capturing thread dump of launch " + launch.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void startTelemetry(Launch launch, Process process) {
+        Optional<ProcessHandle> jvm = Jcmd.findJvm(process);
+        if (!jvm.isPresent()) {
+            log.warn("No JVM found for launch " + launch.getId() + ", skip collecting telemetry");
+            return;
+        }
+        Optional<JvmTelemetry> running = processes.getTelemetry(key(launch));
+        if (running.isPresent()) {
+            try {
+                running.get().attach(jvm.get());
+            } catch (IOException e) {
+                log.warn("Failed continuing telemetry of launch " + launch.getId() + ": " + e.getMessage(), e);
+            }
+            return;
+        }
+        File file = launch.getReportFile(outputDirectory, "-telemetry.csv");
+        try {
+            processes.startTelemetry(
+                    key(launch),
+                    JvmTelemetry.start(launch.getId(), jvm.get(), file, launch.getTelemetryIntervalSeconds(), log));
+            log.info("Collecting telemetry of launch " + launch.getId() + " in " + file);
+        } catch (IOException e) {
+            log.warn("Failed collecting telemetry of launch " + launch.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void startSoak(Launch launch, Process process) throws InterruptedException {
+        Optional<ProcessHandle> jvm = Jcmd.findJvm(process);
+        if (!jvm.isPresent()) {
+            log.warn("No JVM found for launch " + launch.getId() + ", skip soaking");
+            return;
+        }
+        Optional<SoakMonitor> running = processes.getSoak(key(launch));
+        if (running.isPresent()) {
+            try {
+                running.get().attach(jvm.get());
+            } catch (IOException e) {
+                log.warn("Failed continuing soak of launch " + launch.getId() + ": " + e.getMessage(), e);
+            }
+            return;
+        }
+        try {
+            processes.startSoak(key(launch), SoakMonitor.start(launch, jvm.get(), outputDirectory, log));
+            log.info("Soaking launch " + launch.getId() + " for "
+                    + launch.getSoak().get().getDurationMinutes() + " minutes");
+        } catch (IOException e) {
+            log.warn("Failed starting soak of launch " + launch.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void reportBoot(Launch launch, BootTimeline timeline) {
+        timeline.report(launch.getId(), launch.getBootProfile().get().getTop()).forEach(log::info);
+        File file = launch.getReportFile(outputDirectory, "-boot.txt");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), timeline.report(launch.getId(), Integer.MAX_VALUE), StandardCharsets.UTF_8);
+            log.info("Wrote boot profile of launch " + launch.getId() + " to " + file);
+        } catch (IOException e) {
+            log.warn("Failed writing boot profile of launch " + launch.getId() + ": " + e.getMessage(), e);
+        }
+    }
+}
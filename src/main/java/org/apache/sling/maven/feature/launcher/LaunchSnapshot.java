@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.shared.utils.Os;
+
+/**
+ * A copy of the home directory of a launch ({@code launchers/<launch-id>}), which contains its framework cache,
+ * configuration and usually its repository, taken while the launch is stopped.
+ *
+ * <p>On Linux the copy is made with {@code cp --reflink=auto}, which shares the data blocks copy-on-write on
+ * filesystems supporting it, like btrfs and XFS, and falls back to a regular copy otherwise. Hard links are not
+ * used, as the launch modifies and appends to its files in place, which would alter the snapshot as well.</p>
+ */
+class LaunchSnapshot {
+
+    private static final long CP_TIMEOUT_MINUTES = 10;
+
+    private final String launchId;
+    private final Path home;
+    private final Path snapshot;
+    private final Log log;
+
+    LaunchSnapshot(Launch launch, File workDir, Log log) {
+        this.launchId = launch.getId();
+        this.home = new File(workDir, launch.getId()).toPath();
+        this.snapshot = new File(workDir, launch.getId() + "-snapshot").toPath();
+        this.log = log;
+    }
+
+    boolean exists() {
+        return Files.isDirectory(snapshot);
+    }
+
+    /**
+     * Replaces the snapshot with a copy of the current home directory.
+     *
+     * @throws IOException if copying fails
+     * @throws InterruptedException if interrupted while copying
+     */
+    void take() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        copy(realHome(), snapshot);
+        log.info("Took snapshot of launch " + launchId + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Replaces the current home directory with a copy of the snapshot.
+     *
+     * @throws IOException if copying fails
+     * @throws InterruptedException if interrupted while copying
+     */
+    void restore() throws IOException, InterruptedException {
+        if (!exists()) {
+            throw new IOException("No snapshot of launch " + launchId + " found at " + snapshot);
+        }
+        long start = System.nanoTime();
+        copy(snapshot, realHome());
+        log.info("Restored snapshot of launch " + launchId + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * @return the directory the home directory links to if it is on a memory-backed filesystem, else the home
+     *         directory itself
+     */
+    private Path realHome() throws IOException {
+        return Files.isSymbolicLink(home) ? home.toRealPath() : home;
+    }
+
+    private void copy(Path source, Path target) throws IOException, InterruptedException {
+        if (Files.exists(target)) {
+            FileUtils.deleteDirectory(target.toFile());
+        }
+        if (Os.isFamily(Os.FAMILY_UNIX) && !Os.isFamily(Os.FAMILY_MAC) && copyWithReflink(source, target)) {
+            return;
+        }
+        if (Files.exists(target)) {
+            // left over from a failed cp
+            FileUtils.deleteDirectory(target.toFile());
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(
+                        file,
+                        target.resolve(source.relativize(file)),
+                        StandardCopyOption.COPY_ATTRIBUTES,
+                        LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean copyWithReflink(Path source, Path target) throws InterruptedException {
+        try {
+            Process cp = new ProcessBuilder("cp", "-a", "--reflink=auto", source.toString(), target.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(Redirect.DISCARD)
+                    .start();
+            if (!cp.waitFor(CP_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                cp.destroyForcibly();
+                return false;
+            }
+            return cp.exitValue() == 0;
+        } catch (IOException e) {
+            log.debug("Cannot copy with cp, falling back to a regular copy: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+/**
+ * A link between launches through a local proxy which shapes the traffic like a network between hosts.
+ */
+public class Link {
+
+    private String from;
+    private String to;
+    private int port;
+    private int proxyPort = 0;
+    private int latencyMillis = 0;
+    private int jitterMillis = 0;
+    private int bandwidthKbps = 0;
+    private double dropRate = 0;
+
+    /**
+     * @return the id of the launch whose framework properties and launcher variables are rewritten to reach
+     *     {@link #getTo()} through the proxy, {@code null} for all other launches
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    /**
+     * @return the id of the launch the proxy forwards to
+     */
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    /**
+     * @return the port of the launch the proxy forwards to, on the loopback address
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * @return the port the proxy listens on, {@code 0} to choose a free one
+     */
+    public int getProxyPort() {
+        return proxyPort;
+    }
+
+    public void setProxyPort(int proxyPort) {
+        this.proxyPort = proxyPort;
+    }
+
+    /**
+     * @return the delay added to the data in each direction
+     */
+    public int getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return the maximum random deviation from the latency, in both directions
+     */
+    public int getJitterMillis() {
+        return jitterMillis;
+    }
+
+    public void setJitterMillis(int jitterMillis) {
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * @return the bandwidth of each direction in kilobits per second, {@code 0} for no limit
+     */
+    public int getBandwidthKbps() {
+        return bandwidthKbps;
+    }
+
+    public void setBandwidthKbps(int bandwidthKbps) {
+        this.bandwidthKbps = bandwidthKbps;
+    }
+
+    /**
+     * @return the share of the forwarded chunks of data which are delayed by a retransmission timeout, like lost
+     *     TCP segments, between {@code 0} and {@code 1}
+     */
+    public double getDropRate() {
+        return dropRate;
+    }
+
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * @return a name for the link in logs and reports
+     */
+    String getName() {
+        return (from != null ? from : "*") + "->" + to + ":" + port;
+    }
+
+    void validate() {
+        if (to == null || to.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid link: 'to' is not set");
+        }
+        if (port <= 0 || port > 65535 || proxyPort < 0 || proxyPort > 65535) {
+            throw new IllegalArgumentException("Invalid link " + getName() + ": port or proxyPort is out of range");
+        }
+        if (latencyMillis < 0 || jitterMillis < 0 || bandwidthKbps < 0) {
+            throw new IllegalArgumentException("Invalid link " + getName()
+                    + ": latencyMillis, jitterMillis and bandwidthKbps must not be negative");
+        }
+        if (dropRate < 0 || dropRate >= 1) {
+            throw new IllegalArgumentException(
+                    "Invalid link " + getName() + ": dropRate must be at least 0 and below 1");
+        }
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A TCP proxy on the loopback address which forwards to a launch port and shapes the traffic of a {@link Link}.
+ *
+ * <p>All connections are served by a single selector thread. The data read from one side is queued with the time it
+ * is due on the other side, which accounts for the bandwidth, the latency with its jitter and, for dropped chunks, a
+ * retransmission timeout. The order of the data is kept, and reading stops while too much data is queued.
+ */
+class LinkProxy implements Closeable {
+
+    /** The delay of a dropped chunk, the minimum TCP retransmission timeout. */
+    static final long RETRANSMISSION_MILLIS = 200;
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final long MAX_QUEUED = 1024 * 1024;
+
+    private final Link link;
+    private final Log log;
+    private final Random random = new Random();
+    private final List<Connection> connections = new ArrayList<>();
+    private final AtomicLong upstream = new AtomicLong();
+    private final AtomicLong downstream = new AtomicLong();
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+    private long startNanos;
+    private long stopNanos;
+
+    LinkProxy(Link link, Log log) {
+        this.link = link;
+        this.log = log;
+    }
+
+    Link getLink() {
+        return link;
+    }
+
+    /**
+     * Starts to listen and to forward connections.
+     *
+     * @return the port the proxy listens on
+     */
+    int start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), link.getProxyPort()));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        startNanos = System.nanoTime();
+        thread = new Thread(this::run, "feature-launcher-link-" + link.getName());
+        thread.setDaemon(true);
+        thread.start();
+        return getPort();
+    }
+
+    int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    long getBytesUpstream() {
+        return upstream.get();
+    }
+
+    long getBytesDownstream() {
+        return downstream.get();
+    }
+
+    int getConnections() {
+        return accepted.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stopNanos = System.nanoTime();
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the traffic forwarded since the proxy was started, with the average throughput in each direction
+     */
+    String report() {
+        long end = running ? System.nanoTime() : stopNanos;
+        double seconds = Math.max(end - startNanos, 1) / 1_000_000_000d;
+        return String.format(
+                Locale.ROOT,
+                "Link %s (proxy port %d): %d connections, %d bytes to %s (%.1f KiB/s), %d bytes back (%.1f KiB/s)",
+                link.getName(),
+                getPort(),
+                getConnections(),
+                getBytesUpstream(),
+                link.getTo(),
+                getBytesUpstream() / 1024d / seconds,
+                getBytesDownstream(),
+                getBytesDownstream() / 1024d / seconds);
+    }
+
+    /**
+     * Rewrites the addresses of the target port on the local host in a value so that they go through the proxy.
+     */
+    static String rewrite(String value, int targetPort, int proxyPort) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = Pattern.compile("(localhost|127\\.0\\.0\\.1):" + targetPort + "(?!\\d)")
+                .matcher(value);
+        return matcher.replaceAll("$1:" + proxyPort);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                long wait = millisUntilDue();
+                if (wait < 0) {
+                    selector.select();
+                } else if (wait == 0) {
+                    selector.selectNow();
+                } else {
+                    selector.select(wait);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                for (Connection connection : new ArrayList<>(connections)) {
+                    try {
+                        deliver(connection.up);
+                        deliver(connection.down);
+                        if (connection.up.eofWritten && connection.down.eofWritten) {
+                            close(connection);
+                        }
+                    } catch (IOException e) {
+                        close(connection);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.warn("Link " + link.getName() + " failed: " + e.getMessage());
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) {
+                close(connection);
+            }
+            closeQuietly(server);
+            closeQuietly(selector);
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Endpoint endpoint = (Endpoint) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                endpoint.channel.finishConnect();
+                endpoint.connected = true;
+                updateInterest(endpoint);
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(endpoint.reading);
+            }
+            if (key.isValid() && key.isWritable()) {
+                deliver(endpoint.writing);
+            }
+        } catch (IOException e) {
+            close(endpoint.connection);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client = server.accept();
+        if (client == null) {
+            return;
+        }
+        SocketChannel target = SocketChannel.open();
+        try {
+            client.configureBlocking(false);
+            target.configureBlocking(false);
+            Connection connection = new Connection(client, target);
+            boolean connected = target.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), link.getPort()));
+            connection.client.connected = true;
+            connection.target.connected = connected;
+            connection.client.key = client.register(selector, SelectionKey.OP_READ, connection.client);
+            connection.target.key = target.register(
+                    selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, connection.target);
+            connections.add(connection);
+            accepted.incrementAndGet();
+        } catch (IOException e) {
+            closeQuietly(client);
+            closeQuietly(target);
+        }
+    }
+
+    private void read(Direction direction) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        int read = direction.source.channel.read(buffer);
+        if (read < 0) {
+            direction.eofRead = true;
+            enqueue(direction, null, 0);
+        } else if (read > 0) {
+            buffer.flip();
+            direction.counter.addAndGet(read);
+            enqueue(direction, buffer, read);
+        }
+        updateInterest(direction.source);
+    }
+
+    private void enqueue(Direction direction, ByteBuffer data, int size) {
+        long now = System.nanoTime();
+        long transmitted = Math.max(now, direction.lastTransmitted) + transmitNanos(size);
+        direction.lastTransmitted = transmitted;
+        long due = Math.max(transmitted + delayNanos(), direction.lastDue);
+        direction.lastDue = due;
+        direction.queue.add(new Chunk(data, due));
+        direction.queued += size;
+    }
+
+    private long transmitNanos(int size) {
+        if (link.getBandwidthKbps() == 0) {
+            return 0;
+        }
+        return size * 8L * 1_000_000L / link.getBandwidthKbps();
+    }
+
+    private long delayNanos() {
+        long millis = link.getLatencyMillis();
+        if (link.getJitterMillis() > 0) {
+            millis += random.nextInt(2 * link.getJitterMillis() + 1) - link.getJitterMillis();
+        }
+        if (link.getDropRate() > 0 && random.nextDouble() < link.getDropRate()) {
+            millis += RETRANSMISSION_MILLIS;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
+    }
+
+    private void deliver(Direction direction) throws IOException {
+        if (!direction.target.connected) {
+            return;
+        }
+        long now = System.nanoTime();
+        direction.blocked = false;
+        while (!direction.queue.isEmpty() && direction.queue.peek().due - now <= 0) {
+            Chunk chunk = direction.queue.peek();
+            if (chunk.data == null) {
+                direction.target.channel.shutdownOutput();
+                direction.eofWritten = true;
+            } else {
+                direction.target.channel.write(chunk.data);
+                if (chunk.data.hasRemaining()) {
+                    direction.blocked = true;
+                    break;
+                }
+                direction.queued -= chunk.data.limit();
+            }
+            direction.queue.poll();
+        }
+        updateInterest(direction.target);
+        updateInterest(direction.source);
+    }
+
+    private void updateInterest(Endpoint endpoint) {
+        if (endpoint.key == null || !endpoint.key.isValid() || !endpoint.connected) {
+            return;
+        }
+        int ops = 0;
+        if (!endpoint.reading.eofRead && endpoint.reading.queued < MAX_QUEUED) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (endpoint.writing.blocked) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        endpoint.key.interestOps(ops);
+    }
+
+    /**
+     * @return the milliseconds until the next queued chunk is due, {@code -1} if nothing is queued
+     */
+    private long millisUntilDue() {
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Connection connection : connections) {
+            for (Direction direction : new Direction[] {connection.up, connection.down}) {
+                Chunk head = direction.queue.peek();
+                if (head != null && !direction.blocked && direction.target.connected) {
+                    next = Math.min(next, Math.max(head.due - now, 0));
+                }
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return -1;
+        }
+        return (next + 999_999) / 1_000_000;
+    }
+
+    private void close(Connection connection) {
+        connections.remove(connection);
+        closeQuietly(connection.client.channel);
+        closeQuietly(connection.target.channel);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            // nothing left to do with it
+        }
+    }
+
+    private static final class Chunk {
+        private final ByteBuffer data;
+        private final long due;
+
+        private Chunk(ByteBuffer data, long due) {
+            this.data = data;
+            this.due = due;
+        }
+    }
+
+    private static final class Endpoint {
+        private final SocketChannel channel;
+        private final Connection connection;
+        private SelectionKey key;
+        private boolean connected;
+        private Direction reading;
+        private Direction writing;
+
+        private Endpoint(SocketChannel channel, Connection connection) {
+            this.channel = channel;
+            this.connection = connection;
+        }
+    }
+
+    private static final class Direction {
+        private final Endpoint source;
+        private final Endpoint target;
+        private final AtomicLong counter;
+        private final ArrayDeque<Chunk> queue = new ArrayDeque<>();
+        private long queued;
+        private long lastTransmitted = Long.MIN_VALUE;
+        private long lastDue = Long.MIN_VALUE;
+        private boolean blocked;
+        private boolean eofRead;
+        private boolean eofWritten;
+
+        private Direction(Endpoint source, Endpoint target, AtomicLong counter) {
+            this.source = source;
+            this.target = target;
+            this.counter = counter;
+            source.reading = this;
+            target.writing = this;
+        }
+    }
+
+    private final class Connection {
+        private final Endpoint client;
+        private final Endpoint target;
+        private final Direction up;
+        private final Direction down;
+
+        private Connection(SocketChannel client, SocketChannel target) {
+            this.client = new Endpoint(client, this);
+            this.target = new Endpoint(target, this);
+            this.up = new Direction(this.client, this.target, upstream);
+            this.down = new Direction(this.target, this.client, downstream);
+        }
+    }
+}
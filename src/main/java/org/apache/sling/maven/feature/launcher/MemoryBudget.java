@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+/**
+ * Estimates the memory footprint of launches and the memory available on the host for them.
+ *
+ * <p>On Linux the available memory is the lower of {@code MemAvailable} from {@code /proc/meminfo} and what is left
+ * below the memory limit of the cgroup (v2 or v1) the build runs in. On other systems the free physical memory
+ * reported by the JVM is used.</p>
+ */
+final class MemoryBudget {
+
+    /**
+     * How launches which would overcommit the available memory are handled.
+     */
+    enum Admission {
+        /** Start launches regardless of their footprint. */
+        OFF,
+        /** Only log a warning. */
+        WARN,
+        /** Wait until enough memory is available, e.g. because launches of other modules were stopped. */
+        WAIT,
+        /** Fail the build. */
+        FAIL
+    }
+
+    private static final long MEBIBYTE = 1024L * 1024L;
+
+    private static final Path PROC = Paths.get("/proc");
+
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+    private MemoryBudget() {}
+
+    /**
+     * Returns the maximum heap size configured by the given JVM options, falling back to the JVM defaults. An entry
+     * may contain several options separated by whitespace.
+     *
+     * @param vmOptions the options of the launched JVM
+     * @param physicalMemory the physical memory the JVM defaults are derived from
+     * @return the maximum heap size in bytes
+     * @throws IllegalArgumentException if a heap option has an invalid value
+     */
+    static long heapBytes(List<String> vmOptions, long physicalMemory) {
+        long heap = -1;
+        double ramPercentage = 25;
+        for (String option : tokenize(vmOptions)) {
+            try {
+                if (option.startsWith("-Xmx")) {
+                    heap = parseSize(option.substring("-Xmx".length()));
+                } else if (option.startsWith("-XX:MaxHeapSize=")) {
+                    heap = parseSize(option.substring("-XX:MaxHeapSize=".length()));
+                } else if (option.startsWith("-XX:MaxRAMPercentage=")) {
+                    ramPercentage = Double.parseDouble(option.substring("-XX:MaxRAMPercentage=".length()));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("JVM option '" + option + "' has an invalid value", e);
+            }
+        }
+        return heap >= 0 ? heap : (long) (physicalMemory * ramPercentage / 100);
+    }
+
+    /**
+     * Replaces the maximum heap size in the given JVM options.
+     *
+     * @param vmOptions the options of the launched JVM
+     * @param heapBytes the new maximum heap size in bytes
+     * @return the new options
+     */
+    static List<String> withHeap(List<String> vmOptions, long heapBytes) {
+        List<String> result = new ArrayList<>();
+        for (String entry : vmOptions) {
+            List<String> options = tokenize(Collections.singletonList(entry));
+            if (options.stream().noneMatch(MemoryBudget::isMaxHeapOption)) {
+                // kept as it is, as splitting it would break quoted values
+                result.add(entry);
+                continue;
+            }
+            for (String option : options) {
+                if (!isMaxHeapOption(option)) {
+                    result.add(option);
+                }
+            }
+        }
+        result.add("-Xmx" + (heapBytes / MEBIBYTE) + "m");
+        return result;
+    }
+
+    private static boolean isMaxHeapOption(String option) {
+        return option.startsWith("-Xmx") || option.startsWith("-XX:MaxHeapSize=");
+    }
+
+    private static List<String> tokenize(List<String> vmOptions) {
+        List<String> options = new ArrayList<>();
+        for (String entry : vmOptions) {
+            for (String option : entry.trim().split("\\s+")) {
+                if (!option.isEmpty()) {
+                    options.add(option);
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Parses a size in the format of the {@code -Xmx} JVM option, e.g. {@code 512m} or {@code 2G}.
+     *
+     * @param size the size
+     * @return the size in bytes
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+            case 'k':
+                multiplier = 1024L;
+                break;
+            case 'm':
+                multiplier = MEBIBYTE;
+                break;
+            case 'g':
+                multiplier = 1024L * MEBIBYTE;
+                break;
+            case 't':
+                multiplier = 1024L * 1024L * MEBIBYTE;
+                break;
+            default:
+                return Long.parseLong(value);
+        }
+        return Long.parseLong(value.substring(0, value.length() - 1)) * multiplier;
+    }
+
+    static String format(long bytes) {
+        return (bytes / MEBIBYTE) + " MiB";
+    }
+
+    /**
+     * @return the total physical memory, or the cgroup memory limit if lower
+     */
+    @SuppressWarnings("deprecation") // getTotalPhysicalMemorySize() is the only variant available on Java 11
+    static long physicalBytes() {
+        long physical = ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getTotalPhysicalMemorySize();
+        OptionalLong limit = cgroupLimit();
+        return limit.isPresent() ? Math.min(physical, limit.getAsLong()) : physical;
+    }
+
+    /**
+     * @return the memory currently available for new processes
+     */
+    @SuppressWarnings("deprecation") // getFreePhysicalMemorySize() is the only variant available on Java 11
+    static long availableBytes() {
+        OptionalLong memAvailable = readMeminfo("MemAvailable:");
+        long available = memAvailable.isPresent()
+                ? memAvailable.getAsLong()
+                : ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                        .getFreePhysicalMemorySize();
+        OptionalLong limit = cgroupLimit();
+        OptionalLong usage = cgroupUsage();
+        if (limit.isPresent() && usage.isPresent()) {
+            available = Math.min(available, Math.max(0, limit.getAsLong() - usage.getAsLong()));
+        }
+        return available;
+    }
+
+    /**
+     * Returns the resident memory of a process and all of its descendants.
+     *
+     * @param process the process
+     * @return the resident memory in bytes, {@code 0} if it cannot be determined
+     */
+    static long residentBytes(ProcessHandle process) {
+        return Stream.concat(Stream.of(process), process.descendants())
+                .mapToLong(
+                        p -> readKiloBytes(PROC.resolve(Long.toString(p.pid())).resolve("status"), "VmRSS:")
+                                .orElse(0))
+                .sum();
+    }
+
+    private static OptionalLong readMeminfo(String key) {
+        return readKiloBytes(PROC.resolve("meminfo"), key);
+    }
+
+    private static OptionalLong readKiloBytes(Path file, String key) {
+        if (!Files.isReadable(file)) {
+            return OptionalLong.empty();
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.US_ASCII)) {
+            return lines.filter(l -> l.startsWith(key))
+                    .map(l -> l.substring(key.length()).trim().split("\\s+")[0])
+                    .mapToLong(v -> Long.parseLong(v) * 1024L)
+                    .findFirst();
+        } catch (IOException | NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    private static OptionalLong cgroupLimit() {
+        OptionalLong v2 = readCgroupValue("", "memory.max");
+        return v2.isPresent() ? v2 : readCgroupValue("memory", "memory.limit_in_bytes");
+    }
+
+    private static OptionalLong cgroupUsage() {
+        OptionalLong v2 = readCgroupValue("", "memory.current");
+        return v2.isPresent() ? v2 : readCgroupValue("memory", "memory.usage_in_bytes");
+    }
+
+    /**
+     * Reads a value of the cgroup the build runs in.
+     *
+     * @param controller the cgroup v1 controller, or an empty string for the cgroup v2 unified hierarchy
+     * @param name the name of the value
+     */
+    private static OptionalLong readCgroupValue(String controller, String name) {
+        Optional<Path> cgroup = ownCgroup(controller);
+        if (!cgroup.isPresent()) {
+            return OptionalLong.empty();
+        }
+        Path file = cgroup.get().resolve(name);
+        if (!Files.isReadable(file)) {
+            return OptionalLong.empty();
+        }
+        try {
+            String value = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+            long parsed = Long.parseLong(value);
+            // cgroup v1 reports an unlimited memory as a huge number close to Long.MAX_VALUE
+            return parsed < Long.MAX_VALUE / 2 ? OptionalLong.of(parsed) : OptionalLong.empty();
+        } catch (IOException | NumberFormatException e) {
+            // "max" for unlimited cgroup v2 memory
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Looks up the directory of the cgroup the build runs in, based on {@code /proc/self/cgroup}.
+     *
+     * @param controller the cgroup v1 controller, or an empty string for the cgroup v2 unified hierarchy
+     * @return the cgroup directory, empty if not running in such a cgroup
+     */
+    static Optional<Path> ownCgroup(String controller) {
+        Path self = PROC.resolve("self").resolve("cgroup");
+        if (!Files.isReadable(self)) {
+            return Optional.empty();
+        }
+        try (Stream<String> lines = Files.lines(self, StandardCharsets.US_ASCII)) {
+            return lines.map(l -> l.split(":", 3))
+                    .filter(parts -> parts.length == 3
+                            && Arrays.asList(parts[1].split(",")).contains(controller))
+                    .map(parts -> CGROUP_ROOT.resolve(controller).resolve(parts[2].substring(1)))
+                    .filter(Files::isDirectory)
+                    .findFirst();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts launches prepared by the {@code start} goal with {@code onDemand} enabled from within the tests, on their
+ * first use.
+ *
+ * <p>A launch is started at most once per JVM and shared by all tests in it, and it is stopped when the JVM exits.
+ * This class only depends on the JDK, so the plugin can be added as a test dependency and the class called from any
+ * test framework, e.g. from a JUnit 5 {@code BeforeAllCallback}.</p>
+ */
+public final class OnDemandLaunches {
+
+    /**
+     * The system property pointing to the directory with the launch descriptors, by default
+     * {@code target/feature-launcher}.
+     */
+    public static final String DIRECTORY_PROPERTY = "feature-launcher.descriptors";
+
+    private static final String FRAMEWORK_STARTED = "Framework started";
+
+    // the processes of the started launches and of those being started, so that these are stopped as well
+    private static final Map<String, Process> PROCESSES = new ConcurrentHashMap<>();
+
+    // serializes the starts of each launch, while different launches start in parallel
+    private static final Map<String, Object> START_LOCKS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(OnDemandLaunches::stopAll, "on-demand-launches-shutdown"));
+    }
+
+    private OnDemandLaunches() {}
+
+    /**
+     * Starts a launch, unless it is already running, and waits until its framework was started.
+     *
+     * @param launchId the id of the launch
+     * @return the process of the launch
+     * @throws IOException if the launch is not prepared, could not be started or did not start in time
+     * @throws InterruptedException if interrupted while waiting for the start
+     */
+    public static Process start(String launchId) throws IOException, InterruptedException {
+        synchronized (START_LOCKS.computeIfAbsent(launchId, k -> new Object())) {
+            Process running = PROCESSES.get(launchId);
+            if (running != null && running.isAlive()) {
+                return running;
+            }
+            return startProcess(launchId);
+        }
+    }
+
+    private static Process startProcess(String launchId) throws IOException, InterruptedException {
+        File file = descriptorFile(launchId);
+        if (!file.isFile()) {
+            throw new IOException("Launch " + launchId + " was not prepared by the start goal with onDemand enabled, "
+                    + file + " does not exist");
+        }
+        LaunchDescriptor descriptor = LaunchDescriptor.read(file);
+        Process process = descriptor.toProcessBuilder().start();
+        PROCESSES.put(launchId, process);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean frameworkStarted = new AtomicBoolean();
+        Thread output = new Thread(
+                () -> {
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            System.err.println(line); // NOSONAR - we pass through the subprocess stderr
+                            if (line.contains(FRAMEWORK_STARTED)) {
+                                frameworkStarted.set(true);
+                                started.countDown();
+                            }
+                        }
+                    } catch (IOException e) {
+                        // the process ended
+                    } finally {
+                        // also ends the wait if the process ended before the framework was started, e.g. when
+                        // it was stopped through stop(String)
+                        started.countDown();
+                    }
+                },
+                "on-demand-launch-" + launchId);
+        output.setDaemon(true);
+        output.start();
+        try {
+            started.await(descriptor.getStartTimeoutSeconds(), TimeUnit.SECONDS);
+        } finally {
+            if (!frameworkStarted.get()) {
+                PROCESSES.remove(launchId, process);
+                stop(process);
+            }
+        }
+        if (!frameworkStarted.get()) {
+            throw new IOException("Launch " + launchId
+                    + (started.getCount() == 0
+                            ? " ended before its framework was started."
+                            : " failed to start in " + descriptor.getStartTimeoutSeconds() + " seconds."));
+        }
+        return process;
+    }
+
+    /**
+     * Stops a launch started through {@link #start(String)}, e.g. to free its resources before the JVM exits.
+     *
+     * @param launchId the id of the launch
+     */
+    public static void stop(String launchId) {
+        Process process = PROCESSES.remove(launchId);
+        if (process != null) {
+            stop(process);
+        }
+    }
+
+    private static void stopAll() {
+        for (String launchId : PROCESSES.keySet()) {
+            stop(launchId);
+        }
+    }
+
+    private static void stop(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static File descriptorFile(String launchId) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY, "target/feature-launcher");
+        return new File(directory, launchId + ".launch.properties");
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+/**
+ * A launch whose process was spawned, but whose framework may not have started yet.
+ */
+class PendingLaunch {
+
+    private final Launch launch;
+    private final ProcessBuilder command;
+    private final Process process;
+    private final LaunchMonitor monitor;
+    private final BootTimeline timeline;
+    private final long spawnNanos;
+
+    PendingLaunch(
+            Launch launch,
+            ProcessBuilder command,
+            Process process,
+            LaunchMonitor monitor,
+            BootTimeline timeline,
+            long spawnNanos) {
+        this.launch = launch;
+        this.command = command;
+        this.process = process;
+        this.monitor = monitor;
+        this.timeline = timeline;
+        this.spawnNanos = spawnNanos;
+    }
+
+    Launch getLaunch() {
+        return launch;
+    }
+
+    ProcessBuilder getCommand() {
+        return command;
+    }
+
+    Process getProcess() {
+        return process;
+    }
+
+    LaunchMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * @return the boot timeline, {@code null} if the boot is not profiled
+     */
+    BootTimeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * @return the value of {@link System#nanoTime()} when the process was spawned
+     */
+    long getSpawnNanos() {
+        return spawnNanos;
+    }
+}
@@ -21,8 +21,14 @@ package org.apache.sling.maven.feature.launcher;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -114,6 +120,15 @@ public class ProcessTracker {
 
     private boolean hookAdded = false;
     private final Map<String, Process> processes = new HashMap<>();
+    private final Map<String, Long> memoryReservations = new HashMap<>();
+    private final Map<String, ProcessHandle> untrackedMemoryHolders = new HashMap<>();
+    private final Map<String, JvmTelemetry> telemetries = new HashMap<>();
+    private final Map<String, ProcessBuilder> commands = new HashMap<>();
+    private final Map<String, SoakMonitor> soaks = new HashMap<>();
+    private final Map<String, LaunchRecycler> recyclers = new HashMap<>();
+    private final Map<String, List<LinkProxy>> links = new HashMap<>();
+    private final Map<String, PendingLaunch> pendingLaunches = new HashMap<>();
+    private final Map<Integer, String> claimedPorts = new HashMap<>();
 
     public void startTracking(String launchId, Process process) {
         synchronized (sync) {
@@ -121,32 +136,373 @@ public class ProcessTracker {
                 throw new IllegalArgumentException("Launch id " + launchId + " already associated with a process");
             LOG.debug("Start tracking process for launch {}: {}", launchId, process);
             processes.put(launchId, process);
-            if (!hookAdded) {
-                Runtime.getRuntime().addShutdownHook(new Thread("process-tracker-shutdown") {
-                    @Override
-                    public void run() {
-                        LOG.debug("Shutdown hook  is running for launch {}: {}", launchId, process);
-                        for (Map.Entry<String, Process> entry : processes.entrySet()) {
-                            LOG.error(
-                                    "Launch {} was not shut down! Destroying forcibly from shutdown hook.",
-                                    entry.getKey());
-                            try {
-                                ProcessTracker.stopForcibly(process);
-                            } catch (InterruptedException e) {
-                                interrupt();
-                            }
-                        }
+            addShutdownHook();
+        }
+    }
+
+    /**
+     * Adds the hook which stops the remaining launches and closes the remaining links when the JVM ends, e.g. when
+     * the build failed before the {@code stop} goal ran. The caller has to hold {@link #sync}.
+     */
+    private void addShutdownHook() {
+        if (hookAdded) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread("process-tracker-shutdown") {
+            @Override
+            public void run() {
+                LOG.debug("Shutdown hook is running");
+                Map<String, Process> remaining;
+                List<LinkProxy> remainingLinks = new ArrayList<>();
+                synchronized (sync) {
+                    remaining = new HashMap<>(processes);
+                    links.values().forEach(remainingLinks::addAll);
+                    links.clear();
+                }
+                for (Map.Entry<String, Process> entry : remaining.entrySet()) {
+                    LOG.error("Launch {} was not shut down! Destroying forcibly from shutdown hook.", entry.getKey());
+                    try {
+                        ProcessTracker.stopForcibly(entry.getValue());
+                    } catch (InterruptedException e) {
+                        interrupt();
+                    }
+                }
+                for (LinkProxy link : remainingLinks) {
+                    try {
+                        link.close();
+                    } catch (IOException e) {
+                        LOG.debug(
+                                "Failed closing link {} from shutdown hook",
+                                link.getLink().getName(),
+                                e);
                     }
-                });
-                hookAdded = true;
+                }
+            }
+        });
+        hookAdded = true;
+    }
+
+    public Optional<Process> get(String id) {
+        synchronized (sync) {
+            return Optional.ofNullable(processes.get(id));
+        }
+    }
+
+    /**
+     * Reserves memory for the footprint of a launch, until it is stopped.
+     *
+     * @param launchId the id of the launch
+     * @param bytes the memory footprint of the launch
+     */
+    public void reserveMemory(String launchId, long bytes) {
+        synchronized (sync) {
+            memoryReservations.put(launchId, bytes);
+        }
+    }
+
+    /**
+     * Reserves memory for the footprint of a launch if it fits into the available memory besides the reservations of
+     * the other launches. Checking and reserving is one step, so that launches of modules built in parallel are not
+     * admitted against the same memory.
+     *
+     * @param launchId the id of the launch
+     * @param bytes the memory footprint of the launch
+     * @param availableBytes the memory reported as available by the OS
+     * @return whether the memory was reserved
+     */
+    public boolean tryReserveMemory(String launchId, long bytes, long availableBytes) {
+        synchronized (sync) {
+            if (bytes > availableBytes - unusedReservedMemory(launchId)) {
+                return false;
             }
+            memoryReservations.put(launchId, bytes);
+            return true;
+        }
+    }
+
+    /**
+     * Ties the memory reservation of a launch whose process is not tracked to that process, so that the reservation
+     * is dropped once the process ended instead of when the launch is stopped.
+     *
+     * @param launchId the id of the launch
+     * @param process the process of the launch
+     */
+    public void holdMemory(String launchId, ProcessHandle process) {
+        synchronized (sync) {
+            if (memoryReservations.containsKey(launchId)) {
+                untrackedMemoryHolders.put(launchId, process);
+            }
+        }
+    }
+
+    public void releaseMemory(String launchId) {
+        synchronized (sync) {
+            memoryReservations.remove(launchId);
+            untrackedMemoryHolders.remove(launchId);
         }
     }
 
+    /**
+     * Returns the memory that is reserved for tracked launches but not used by them yet, i.e. which is still
+     * reported as available by the OS, but will be claimed once their JVMs grow their heaps.
+     *
+     * @return the reserved but unused memory in bytes
+     */
+    public long getUnusedReservedMemory() {
+        synchronized (sync) {
+            return unusedReservedMemory(null);
+        }
+    }
+
+    private long unusedReservedMemory(String except) {
+        long unused = 0;
+        for (Iterator<Map.Entry<String, Long>> it =
+                        memoryReservations.entrySet().iterator();
+                it.hasNext(); ) {
+            Map.Entry<String, Long> reservation = it.next();
+            if (reservation.getKey().equals(except)) {
+                continue;
+            }
+            Process process = processes.get(reservation.getKey());
+            ProcessHandle handle =
+                    process != null ? process.toHandle() : untrackedMemoryHolders.get(reservation.getKey());
+            if (process == null && handle != null && !handle.isAlive()) {
+                // an untracked launch which ended
+                it.remove();
+                untrackedMemoryHolders.remove(reservation.getKey());
+                continue;
+            }
+            long resident = handle != null ? MemoryBudget.residentBytes(handle) : 0;
+            unused += Math.max(0, reservation.getValue() - resident);
+        }
+        return unused;
+    }
+
+    public void startTelemetry(String launchId, JvmTelemetry telemetry) {
+        synchronized (sync) {
+            telemetries.put(launchId, telemetry);
+        }
+    }
+
+    /**
+     * @param launchId the id of the launch
+     * @return the telemetry of the launch, which is kept while the launch is restarted
+     */
+    public Optional<JvmTelemetry> getTelemetry(String launchId) {
+        synchronized (sync) {
+            return Optional.ofNullable(telemetries.get(launchId));
+        }
+    }
+
+    /**
+     * Remembers a launch which was spawned by the {@code start} goal without waiting for it, until the {@code await}
+     * goal waits for it.
+     *
+     * @param launchId the id of the launch
+     * @param pending the spawned launch
+     */
+    public void addPendingLaunch(String launchId, PendingLaunch pending) {
+        synchronized (sync) {
+            pendingLaunches.put(launchId, pending);
+        }
+    }
+
+    public Optional<PendingLaunch> removePendingLaunch(String launchId) {
+        synchronized (sync) {
+            return Optional.ofNullable(pendingLaunches.remove(launchId));
+        }
+    }
+
+    /**
+     * Claims ports for a launch until it is stopped, so that launches of modules built in parallel cannot use the
+     * same ports.
+     *
+     * @param launchId the id of the launch
+     * @param ports the ports the launch listens on
+     * @return the ports which are already claimed by other launches, mapped to these launches; nothing is claimed
+     *     unless it is empty
+     */
+    public Map<Integer, String> claimPorts(String launchId, Iterable<Integer> ports) {
+        synchronized (sync) {
+            Map<Integer, String> conflicts = new HashMap<>();
+            for (Integer port : ports) {
+                String owner = claimedPorts.get(port);
+                if (owner != null && !owner.equals(launchId)) {
+                    conflicts.put(port, owner);
+                }
+            }
+            if (conflicts.isEmpty()) {
+                ports.forEach(port -> claimedPorts.put(port, launchId));
+            }
+            return conflicts;
+        }
+    }
+
+    public void releasePorts(String launchId) {
+        synchronized (sync) {
+            claimedPorts.values().removeIf(launchId::equals);
+        }
+    }
+
+    public void startSoak(String launchId, SoakMonitor soak) {
+        synchronized (sync) {
+            soaks.put(launchId, soak);
+        }
+    }
+
+    /**
+     * @param launchId the id of the launch
+     * @return the soak monitor of the launch, which is kept while the launch is restarted
+     */
+    public Optional<SoakMonitor> getSoak(String launchId) {
+        synchronized (sync) {
+            return Optional.ofNullable(soaks.get(launchId));
+        }
+    }
+
+    /**
+     * Returns the soak monitor of a launch, which has to be {@link SoakMonitor#finish() finished} by the caller.
+     *
+     * @param launchId the id of the launch
+     * @return the soak monitor, empty if the launch is not soaking
+     */
+    public Optional<SoakMonitor> removeSoak(String launchId) {
+        synchronized (sync) {
+            return Optional.ofNullable(soaks.remove(launchId));
+        }
+    }
+
+    /**
+     * Remembers a started link proxy, which is closed by the {@code stop} goal.
+     *
+     * @param owner the qualified output directory of the launches the link belongs to
+     * @param proxy the started proxy
+     */
+    public void addLink(String owner, LinkProxy proxy) {
+        synchronized (sync) {
+            links.computeIfAbsent(owner, k -> new ArrayList<>()).add(proxy);
+            addShutdownHook();
+        }
+    }
+
+    /**
+     * Forgets a link proxy, which has to be closed by the caller.
+     *
+     * @param owner the qualified output directory of the launches the link belongs to
+     * @param proxy the proxy
+     */
+    public void removeLink(String owner, LinkProxy proxy) {
+        synchronized (sync) {
+            List<LinkProxy> proxies = links.get(owner);
+            if (proxies != null && proxies.remove(proxy) && proxies.isEmpty()) {
+                links.remove(owner);
+            }
+        }
+    }
+
+    /**
+     * Returns the link proxies started for launches, which have to be closed by the caller.
+     *
+     * @param owner the qualified output directory of the launches the links belong to
+     * @return the proxies, empty if none were started
+     */
+    public List<LinkProxy> removeLinks(String owner) {
+        synchronized (sync) {
+            List<LinkProxy> proxies = links.remove(owner);
+            return proxies != null ? proxies : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Remembers the recycler of a launch, which is stopped when the launch is stopped, but not when it is restarted.
+     *
+     * @param launchId the id of the launch
+     * @param recycler the started recycler
+     */
+    public void startRecycling(String launchId, LaunchRecycler recycler) {
+        synchronized (sync) {
+            recyclers.put(launchId, recycler);
+        }
+    }
+
+    /**
+     * Remembers how the process of a launch was started, so that it can be started again.
+     *
+     * @param launchId the id of the launch
+     * @param command the process builder which started the launch
+     */
+    public void setCommand(String launchId, ProcessBuilder command) {
+        synchronized (sync) {
+            commands.put(launchId, command);
+        }
+    }
+
+    public Optional<ProcessBuilder> getCommand(String launchId) {
+        synchronized (sync) {
+            return Optional.ofNullable(commands.get(launchId));
+        }
+    }
+
+    /**
+     * Stops the process of a launch which is going to be started again, while keeping its command, memory
+     * reservation, telemetry and soak, which continue with the new process.
+     *
+     * @param id the id of the launch
+     * @throws InterruptedException if interrupted while waiting for the process to stop
+     */
+    public void stopForRestart(String id) throws InterruptedException {
+        stop(id, false);
+    }
+
     public void stop(String id) throws InterruptedException {
+        stop(id, true);
+    }
+
+    private void stop(String id, boolean forget) throws InterruptedException {
+        if (forget) {
+            LaunchRecycler recycler;
+            synchronized (sync) {
+                recycler = recyclers.remove(id);
+            }
+            // stopped first, so that it does not restart the launch while it is being stopped
+            if (recycler != null) {
+                recycler.stop();
+            }
+        }
         Process process;
+        JvmTelemetry telemetry;
+        SoakMonitor soak;
         synchronized (sync) {
             process = processes.remove(id);
+            pendingLaunches.remove(id);
+            if (forget) {
+                telemetry = telemetries.remove(id);
+                soak = soaks.remove(id);
+                claimedPorts.values().removeIf(id::equals);
+                memoryReservations.remove(id);
+                untrackedMemoryHolders.remove(id);
+                commands.remove(id);
+            } else {
+                telemetry = telemetries.get(id);
+                soak = soaks.get(id);
+            }
+        }
+        if (!forget) {
+            // kept and attached to the JVM of the restarted launch
+            if (telemetry != null) {
+                telemetry.detach();
+            }
+            if (soak != null) {
+                soak.detach();
+            }
+        } else {
+            if (telemetry != null) {
+                telemetry.stop();
+            }
+            if (soak != null) {
+                LOG.warn("Soak of launch {} was interrupted by stopping it", id);
+                soak.finish();
+            }
         }
         if (process == null) {
             LOG.warn("Process not found in process list, skip stopping: {}", id);
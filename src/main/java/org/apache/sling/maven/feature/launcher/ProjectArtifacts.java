@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Helpers for the artifacts built by the current project, which are handed over to launches.
+ */
+final class ProjectArtifacts {
+
+    private ProjectArtifacts() {}
+
+    /**
+     * Collects the main artifact and all attached artifacts of the project which have a file. The main artifact of a
+     * project which was not packaged yet, whose file is the directory {@code target/classes}, is left out.
+     *
+     * @param project the project
+     * @return the artifacts, the main artifact first
+     */
+    static List<Artifact> collect(MavenProject project) {
+        List<Artifact> artifacts = new ArrayList<>();
+        Artifact mainArtifact = project.getArtifact();
+        if (hasFile(mainArtifact)) {
+            artifacts.add(mainArtifact);
+        }
+        for (Artifact attachedArtifact : project.getAttachedArtifacts()) {
+            if (hasFile(attachedArtifact)) {
+                artifacts.add(attachedArtifact);
+            }
+        }
+        return artifacts;
+    }
+
+    private static boolean hasFile(Artifact artifact) {
+        return artifact != null
+                && artifact.getFile() != null
+                && artifact.getFile().isFile();
+    }
+
+    /**
+     * Returns the file extension of an artifact, as determined by its artifact handler.
+     *
+     * @param artifact the artifact
+     * @return the extension
+     */
+    static String getExtension(Artifact artifact) {
+        if (artifact.getArtifactHandler() != null
+                && artifact.getArtifactHandler().getExtension() != null) {
+            return artifact.getArtifactHandler().getExtension();
+        }
+        return artifact.getType();
+    }
+
+    /**
+     * Returns the file name of an artifact in the Maven2 repository layout.
+     *
+     * @param artifact the artifact
+     * @return the file name {@code artifactId-version[-classifier].extension}
+     */
+    static String getFileName(Artifact artifact) {
+        StringBuilder filename = new StringBuilder();
+        filename.append(artifact.getArtifactId()).append("-").append(artifact.getVersion());
+        if (artifact.getClassifier() != null && !artifact.getClassifier().isEmpty()) {
+            filename.append("-").append(artifact.getClassifier());
+        }
+        filename.append(".").append(getExtension(artifact));
+        return filename.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+/**
+ * Settings for restarting a launch between test classes, before it degrades over a long test suite.
+ */
+public class Recycling {
+
+    private int afterTestClasses = 0;
+    private int maxUptimeMinutes = 0;
+    private int maxHeapAfterGcMb = 0;
+    private int sampleIntervalSeconds = 30;
+    private boolean restoreSnapshot = false;
+
+    /**
+     * @return the number of test classes after which the launch is restarted, {@code 0} for no limit
+     */
+    public int getAfterTestClasses() {
+        return afterTestClasses;
+    }
+
+    public void setAfterTestClasses(int afterTestClasses) {
+        this.afterTestClasses = afterTestClasses;
+    }
+
+    /**
+     * @return the time since its start after which the launch is restarted, {@code 0} for no limit
+     */
+    public int getMaxUptimeMinutes() {
+        return maxUptimeMinutes;
+    }
+
+    public void setMaxUptimeMinutes(int maxUptimeMinutes) {
+        this.maxUptimeMinutes = maxUptimeMinutes;
+    }
+
+    /**
+     * @return the heap usage after the last GC, in MiB, above which the launch is restarted, {@code 0} for no limit
+     */
+    public int getMaxHeapAfterGcMb() {
+        return maxHeapAfterGcMb;
+    }
+
+    public void setMaxHeapAfterGcMb(int maxHeapAfterGcMb) {
+        this.maxHeapAfterGcMb = maxHeapAfterGcMb;
+    }
+
+    /**
+     * @return the interval in which the heap usage after GC is sampled, without forcing a GC
+     */
+    public int getSampleIntervalSeconds() {
+        return sampleIntervalSeconds;
+    }
+
+    public void setSampleIntervalSeconds(int sampleIntervalSeconds) {
+        this.sampleIntervalSeconds = sampleIntervalSeconds;
+    }
+
+    /**
+     * @return whether the snapshot of the launch is restored before restarting it, which requires {@code snapshot}
+     */
+    public boolean isRestoreSnapshot() {
+        return restoreSnapshot;
+    }
+
+    public void setRestoreSnapshot(boolean restoreSnapshot) {
+        this.restoreSnapshot = restoreSnapshot;
+    }
+
+    void validate(String launchId) {
+        if (afterTestClasses < 0 || maxUptimeMinutes < 0 || maxHeapAfterGcMb < 0) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId
+                    + "': recycling afterTestClasses, maxUptimeMinutes and maxHeapAfterGcMb must not be negative");
+        }
+        if (afterTestClasses == 0 && maxUptimeMinutes == 0 && maxHeapAfterGcMb == 0) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId
+                    + "': recycling needs one of afterTestClasses, maxUptimeMinutes or maxHeapAfterGcMb");
+        }
+        if (sampleIntervalSeconds <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': recycling sampleIntervalSeconds must be positive");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Deploys the bundles of the current project which changed since a launch was started into the running launch,
+ * without restarting it. Only launches with {@code hotDeploy} enabled are considered.
+ *
+ * <p>Typically invoked after rebuilding the bundles, e.g. {@code mvn package feature-launcher:redeploy}, while the
+ * launch is kept running by another build using {@code feature-launcher.waitForInput}.</p>
+ */
+@Mojo(name = "redeploy", threadSafe = true)
+public class RedeployMojo extends AbstractMojo {
+
+    /**
+     * List of {@link Launch} objects to redeploy to, see the {@code start} goal for the format.
+     */
+    @Parameter(required = true)
+    private List<Launch> launches;
+
+    /**
+     * The directory in which the features are launched (below its child directory {@code launchers/<launch-id>}).
+     */
+    @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
+    private File outputDirectory;
+
+    /**
+     * If {@code true} the bundles are watched for changes and redeployed until the build is interrupted.
+     */
+    @Parameter(property = "feature-launcher.watch", defaultValue = "false")
+    private boolean watch;
+
+    /**
+     * The interval in which to check the bundles for changes in watch mode.
+     */
+    @Parameter(property = "feature-launcher.watchIntervalSeconds", defaultValue = "2")
+    private int watchIntervalSeconds;
+
+    @Parameter(property = "project", readonly = true, required = true)
+    protected MavenProject project;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        redeploy();
+        if (!watch) {
+            return;
+        }
+        getLog().info("Watching bundles for changes, press Ctrl+C to stop");
+        try {
+            while (true) {
+                TimeUnit.SECONDS.sleep(watchIntervalSeconds);
+                redeploy();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void redeploy() throws MojoExecutionException {
+        File mainFile = project.getArtifact() != null ? project.getArtifact().getFile() : null;
+        if (mainFile != null && mainFile.isDirectory()) {
+            throw new MojoExecutionException("The bundle of project " + project.getArtifactId()
+                    + " is the directory " + mainFile + ", package the project before redeploying it, e.g. with "
+                    + "mvn package feature-launcher:redeploy");
+        }
+        List<Artifact> artifacts = ProjectArtifacts.collect(project);
+        for (Launch launch : launches) {
+            if (launch.isSkip() || !launch.isHotDeploy()) {
+                continue;
+            }
+            try {
+                List<Artifact> deployed = new HotDeployment(launch, outputDirectory).deployChanged(artifacts);
+                if (deployed.isEmpty()) {
+                    getLog().debug("No changed bundles for launch " + launch.getId());
+                }
+                for (Artifact artifact : deployed) {
+                    getLog().info("Redeployed " + artifact.getId() + " to launch " + launch.getId());
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException(
+                        "Failed redeploying to launch " + launch.getId() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Resets running launches to the state they had right after they were started, by stopping them, restoring the
+ * snapshot of their home directory and starting them again. Only launches with {@code snapshot} enabled are reset.
+ */
+@Mojo(name = "reset", threadSafe = true)
+public class ResetMojo extends AbstractMojo {
+
+    /**
+     * List of {@link Launch} objects to reset, see the {@code start} goal for the format.
+     */
+    @Parameter(required = true)
+    private List<Launch> launches;
+
+    /**
+     * The directory in which the features are launched (below its child directory {@code launchers/<launch-id>}).
+     */
+    @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
+    private File outputDirectory;
+
+    @Parameter(property = "session", readonly = true, required = true)
+    private MavenSession mavenSession;
+
+    @Inject
+    private ProcessTracker processes;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        File workDir = new File(outputDirectory, "launchers");
+        LaunchRunner runner = new LaunchRunner(processes, outputDirectory, true, mavenSession.isParallel(), getLog());
+        try {
+            for (Launch launch : launches) {
+                if (launch.isSkip() || !launch.isSnapshot()) {
+                    continue;
+                }
+                ProcessBuilder command = processes
+                        .getCommand(runner.key(launch))
+                        .orElseThrow(() -> new MojoExecutionException("Launch " + launch.getId()
+                                + " is not running, or it was started without tracking its process"));
+
+                getLog().info("Resetting launch with id " + launch.getId());
+                processes.stopForRestart(runner.key(launch));
+                new LaunchSnapshot(launch, workDir, getLog()).restore();
+                runner.start(launch, command);
+                runner.warmUp(launch);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Execution interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import javax.inject.Named;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.maven.SessionScoped;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the artifacts resolved by the goals of this plugin for the rest of the Maven session, so that the
+ * launcher and features used by several executions, launches or modules are only resolved once, including the
+ * metadata checks for snapshots. Concurrent resolutions of the same artifact are coalesced into one.
+ */
+@Named
+@SessionScoped
+public class ResolutionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResolutionCache.class);
+
+    private final ConcurrentMap<String, CompletableFuture<Artifact>> artifacts = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves an artifact unless it was resolved before in this session. Failed resolutions are not remembered, so
+     * that they can be retried with other repositories.
+     *
+     * @param resolver the resolver to use
+     * @param session the repository session
+     * @param artifact the artifact to resolve
+     * @param repositories the repositories to resolve the artifact from
+     * @return the resolved artifact
+     * @throws ArtifactResolutionException if the artifact cannot be resolved
+     * @throws InterruptedException if interrupted while waiting for a concurrent resolution of the artifact
+     */
+    public Artifact resolve(
+            ArtifactResolver resolver,
+            RepositorySystemSession session,
+            Artifact artifact,
+            List<RemoteRepository> repositories)
+            throws ArtifactResolutionException, InterruptedException {
+        String key = artifact.toString();
+        CompletableFuture<Artifact> resolution = new CompletableFuture<>();
+        CompletableFuture<Artifact> existing = artifacts.putIfAbsent(key, resolution);
+        if (existing == null) {
+            try {
+                Artifact resolved = resolver.resolveArtifact(session, new ArtifactRequest(artifact, repositories, null))
+                        .getArtifact();
+                resolution.complete(resolved);
+                return resolved;
+            } catch (Throwable e) {
+                // whatever went wrong, forget the resolution and release the concurrent resolutions waiting for it
+                artifacts.remove(key, resolution);
+                resolution.completeExceptionally(e);
+                throw e;
+            }
+        }
+        LOG.debug("Reusing the resolution of {}", key);
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ArtifactResolutionException) {
+                throw (ArtifactResolutionException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+}
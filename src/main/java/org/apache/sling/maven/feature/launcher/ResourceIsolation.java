@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.shared.utils.Os;
+
+/**
+ * Applies the {@link Resources} of a launch to its process tree.
+ *
+ * <p>The preferred way is a cgroup v2 child group, either below the cgroup of the build or as a sibling of it,
+ * depending on which one is writable, has the required controllers and allows moving processes of the build into
+ * it. The launched command is wrapped so that it joins that cgroup before it is executed, which makes every process
+ * it spawns a member as well. If no cgroup is usable, the launch is pinned to its CPUs with {@code taskset} instead,
+ * without CPU quota and memory limit.</p>
+ */
+final class ResourceIsolation {
+
+    private static final String CGROUP_PREFIX = "feature-launcher-";
+
+    private static final long CPU_PERIOD_MICROS = 100_000;
+
+    private ResourceIsolation() {}
+
+    /**
+     * Wraps the command of a launch so that it runs with the given resources.
+     *
+     * @param launchId the id of the launch
+     * @param qualifiedId the id of the launch which is unique within the build, see
+     *     {@link Launch#getQualifiedId(java.io.File)}
+     * @param resources the resources to apply
+     * @param command the command starting the launch
+     * @param log the log to report to
+     * @return the wrapped command, or the original one if the resources cannot be applied
+     */
+    static List<String> wrap(String launchId, String qualifiedId, Resources resources, List<String> command, Log log) {
+        if (!Os.isFamily(Os.FAMILY_UNIX) || Os.isFamily(Os.FAMILY_MAC)) {
+            log.warn("Resources of launch " + launchId + " are only supported on Linux, ignoring them");
+            return command;
+        }
+
+        for (Path base : cgroupCandidates()) {
+            Optional<Path> cgroup = createCgroup(base, qualifiedId, resources, log);
+            if (cgroup.isPresent()) {
+                log.info("Running launch " + launchId + " in cgroup " + cgroup.get());
+                List<String> wrapped = new ArrayList<>(Arrays.asList(
+                        "sh",
+                        "-c",
+                        // the error goes to the output of the launch, which ends its start right away
+                        "echo $$ > \"$0\" || { echo \"Cannot move the launch into cgroup $0\" >&2; exit 1; }; "
+                                + "exec \"$@\"",
+                        cgroup.get().resolve("cgroup.procs").toString()));
+                wrapped.addAll(command);
+                return wrapped;
+            }
+        }
+
+        if (!resources.getCpus().isPresent()) {
+            log.warn("No usable cgroup found for launch " + launchId + ", ignoring its resources");
+            return command;
+        }
+        log.warn("No usable cgroup found for launch " + launchId
+                + ", pinning it with taskset, without CPU quota and memory limit");
+        List<String> wrapped = new ArrayList<>(
+                Arrays.asList("taskset", "-c", resources.getCpus().get()));
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * Removes the cgroup of a launch, if one was created. Must be called after the launch was stopped.
+     *
+     * @param qualifiedId the id of the launch which is unique within the build
+     * @param log the log to report to
+     */
+    static void release(String qualifiedId, Log log) {
+        for (Path base : cgroupCandidates()) {
+            Path cgroup = base.resolve(CGROUP_PREFIX + qualifiedId);
+            if (Files.isDirectory(cgroup)) {
+                try {
+                    // a cgroup directory is removed with rmdir, its control files cannot be deleted
+                    Files.delete(cgroup);
+                } catch (IOException e) {
+                    log.warn("Failed removing cgroup " + cgroup + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static List<Path> cgroupCandidates() {
+        Optional<Path> own = MemoryBudget.ownCgroup("");
+        if (!own.isPresent() || !Files.exists(own.get().resolve("cgroup.controllers"))) {
+            return Collections.emptyList();
+        }
+        List<Path> candidates = new ArrayList<>();
+        candidates.add(own.get());
+        if (own.get().getParent() != null && Files.exists(own.get().getParent().resolve("cgroup.controllers"))) {
+            candidates.add(own.get().getParent());
+        }
+        return candidates;
+    }
+
+    private static Optional<Path> createCgroup(Path base, String qualifiedId, Resources resources, Log log) {
+        if (!Files.isWritable(base)) {
+            return Optional.empty();
+        }
+        List<String> controllers = new ArrayList<>();
+        resources.getCpus().ifPresent(c -> controllers.add("cpuset"));
+        resources.getCpuQuota().ifPresent(c -> controllers.add("cpu"));
+        resources.getMemory().ifPresent(c -> controllers.add("memory"));
+
+        Path cgroup = base.resolve(CGROUP_PREFIX + qualifiedId);
+        try {
+            if (!enableControllers(base, controllers)) {
+                return Optional.empty();
+            }
+            if (!Files.isDirectory(cgroup)) {
+                Files.createDirectory(cgroup);
+            }
+            if (resources.getCpus().isPresent()) {
+                write(cgroup.resolve("cpuset.cpus"), resources.getCpus().get());
+            }
+            if (resources.getCpuQuota().isPresent()) {
+                long quota = (long) (resources.getCpuQuota().get() * CPU_PERIOD_MICROS);
+                write(cgroup.resolve("cpu.max"), quota + " " + CPU_PERIOD_MICROS);
+            }
+            if (resources.getMemory().isPresent()) {
+                write(
+                        cgroup.resolve("memory.max"),
+                        Long.toString(
+                                MemoryBudget.parseSize(resources.getMemory().get())));
+            }
+            probeMove(cgroup);
+            return Optional.of(cgroup);
+        } catch (IOException e) {
+            log.debug("Cannot use cgroup below " + base + " for launch " + qualifiedId + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(cgroup);
+            } catch (IOException ignored) {
+                // an unusable, left over cgroup is harmless
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Checks that processes of the build may be moved into the cgroup, like the wrapped command moves itself, by
+     * moving a short-lived child process. The delegation rules of cgroup v2 often forbid this even if the cgroup
+     * itself could be created.
+     */
+    private static void probeMove(Path cgroup) throws IOException {
+        Process probe = new ProcessBuilder("sleep", "30").start();
+        try {
+            write(cgroup.resolve("cgroup.procs"), Long.toString(probe.pid()));
+        } finally {
+            probe.destroyForcibly();
+            try {
+                // the cgroup can only be removed once the probe left it
+                probe.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Makes sure the given controllers are enabled for the children of the given cgroup.
+     */
+    private static boolean enableControllers(Path base, List<String> controllers) throws IOException {
+        List<String> available = readTokens(base.resolve("cgroup.controllers"));
+        if (!available.containsAll(controllers)) {
+            return false;
+        }
+        List<String> enabled = readTokens(base.resolve("cgroup.subtree_control"));
+        for (String controller : controllers) {
+            if (!enabled.contains(controller)) {
+                // fails with EBUSY if the cgroup has member processes, as cgroup v2 does not allow these for
+                // cgroups which distribute resources to children
+                write(base.resolve("cgroup.subtree_control"), "+" + controller);
+            }
+        }
+        return true;
+    }
+
+    private static List<String> readTokens(Path file) throws IOException {
+        String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        return content.isEmpty() ? Collections.emptyList() : Arrays.asList(content.split("\\s+"));
+    }
+
+    private static void write(Path file, String value) throws IOException {
+        Files.write(file, value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Optional;
+
+/**
+ * CPU and memory limits for the process tree of a launch, only supported on Linux.
+ */
+public class Resources {
+
+    private String cpus;
+    private Double cpuQuota;
+    private String memory;
+
+    /**
+     * @return the CPUs to pin the launch to, in the list format of {@code cpuset.cpus}, e.g. {@code 0-3,6}
+     */
+    public Optional<String> getCpus() {
+        return Optional.ofNullable(cpus).filter(c -> !c.trim().isEmpty());
+    }
+
+    public void setCpus(String cpus) {
+        this.cpus = cpus;
+    }
+
+    /**
+     * @return the maximum CPU time of the launch in number of CPUs, e.g. {@code 1.5}
+     */
+    public Optional<Double> getCpuQuota() {
+        return Optional.ofNullable(cpuQuota);
+    }
+
+    public void setCpuQuota(Double cpuQuota) {
+        this.cpuQuota = cpuQuota;
+    }
+
+    /**
+     * @return the maximum memory of the launch in the format of {@code -Xmx}, e.g. {@code 2g}
+     */
+    public Optional<String> getMemory() {
+        return Optional.ofNullable(memory).filter(m -> !m.trim().isEmpty());
+    }
+
+    public void setMemory(String memory) {
+        this.memory = memory;
+    }
+
+    void validate(String launchId) {
+        if (cpuQuota != null && cpuQuota <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': cpuQuota value '" + cpuQuota + "' is not positive");
+        }
+        getMemory().ifPresent(m -> {
+            try {
+                MemoryBudget.parseSize(m);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        "Invalid launch '" + launchId + "': memory value '" + m + "' is not a valid size");
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+/**
+ * Settings for keeping a launch running for a longer time while watching its heap for leaks.
+ */
+public class Soak {
+
+    private int durationMinutes = 60;
+    private int sampleIntervalSeconds = 60;
+    private double maxHeapGrowthMbPerHour = 10;
+
+    /**
+     * @return the minimum time the launch is kept running, counted from its start
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * @return the interval in which a GC is forced and the heap usage after it is sampled
+     */
+    public int getSampleIntervalSeconds() {
+        return sampleIntervalSeconds;
+    }
+
+    public void setSampleIntervalSeconds(int sampleIntervalSeconds) {
+        this.sampleIntervalSeconds = sampleIntervalSeconds;
+    }
+
+    /**
+     * @return the maximum growth of the heap usage after GC, in MiB per hour, above which the build fails
+     */
+    public double getMaxHeapGrowthMbPerHour() {
+        return maxHeapGrowthMbPerHour;
+    }
+
+    public void setMaxHeapGrowthMbPerHour(double maxHeapGrowthMbPerHour) {
+        this.maxHeapGrowthMbPerHour = maxHeapGrowthMbPerHour;
+    }
+
+    void validate(String launchId) {
+        if (durationMinutes <= 0 || sampleIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId
+                    + "': soak durationMinutes and sampleIntervalSeconds must be positive");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Samples the heap usage of a soaking launch after forcing a GC through JMX, and captures class histograms at the
+ * start and the end, to detect and locate memory leaks. The soak continues across restarts of the launch, with the
+ * samples and histograms of each JVM kept apart.
+ */
+class SoakMonitor {
+
+    private static final double MEBIBYTE = 1024.0 * 1024.0;
+
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private static final int TOP_CLASSES = 10;
+
+    private final Launch launch;
+    private final File outputDirectory;
+    private final Log log;
+    private final ScheduledExecutorService executor;
+    private final long startMillis = System.currentTimeMillis();
+    private final List<List<long[]>> samples = new ArrayList<>();
+
+    private ProcessHandle jvm;
+    private JvmConnection connection;
+    private ClassHistogram startHistogram;
+
+    private SoakMonitor(Launch launch, File outputDirectory, Log log) throws IOException {
+        this.launch = launch;
+        this.outputDirectory = outputDirectory;
+        this.log = log;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "launch-soak-" + launch.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(samplesFile().getParentFile().toPath());
+        Files.write(
+                samplesFile().toPath(),
+                ("time_ms,heap_used_after_gc,jvm" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SoakMonitor start(Launch launch, ProcessHandle jvm, File outputDirectory, Log log)
+            throws IOException, InterruptedException {
+        SoakMonitor monitor = new SoakMonitor(launch, outputDirectory, log);
+        try {
+            monitor.attach(jvm);
+        } catch (IOException | InterruptedException e) {
+            monitor.executor.shutdownNow();
+            throw e;
+        }
+        int interval = launch.getSoak().get().getSampleIntervalSeconds();
+        monitor.executor.scheduleAtFixedRate(monitor::sample, interval, interval, TimeUnit.SECONDS);
+        return monitor;
+    }
+
+    /**
+     * Continues the soak with the JVM of the restarted launch.
+     *
+     * @param jvm the new JVM of the launch
+     * @throws IOException if capturing its class histogram or attaching to it fails
+     * @throws InterruptedException if interrupted while capturing its class histogram
+     */
+    synchronized void attach(ProcessHandle jvm) throws IOException, InterruptedException {
+        detach();
+        samples.add(new ArrayList<>());
+        this.jvm = jvm;
+        this.startHistogram = captureHistogram("start");
+        this.connection = JvmConnection.attach(jvm);
+    }
+
+    /**
+     * Stops sampling the current JVM of the launch before it is stopped, and logs the classes which grew the most
+     * in it.
+     *
+     * @throws InterruptedException if interrupted while capturing its class histogram
+     */
+    synchronized void detach() throws InterruptedException {
+        if (jvm == null) {
+            return;
+        }
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (IOException e) {
+            log.debug("Failed closing JMX connection of launch " + launch.getId() + ": " + e.getMessage());
+        }
+        try {
+            ClassHistogram endHistogram = captureHistogram("end");
+            List<String> growth = endHistogram.topGrowth(startHistogram, TOP_CLASSES);
+            if (!growth.isEmpty()) {
+                log.info("Classes of launch " + launch.getId() + " which grew the most during the soak"
+                        + (samples.size() > 1 ? " in JVM " + samples.size() : "") + ":");
+                growth.forEach(g -> log.info("  " + g));
+            }
+        } catch (IOException e) {
+            log.warn("Failed capturing class histogram of launch " + launch.getId() + ": " + e.getMessage());
+        } finally {
+            jvm = null;
+            connection = null;
+            startHistogram = null;
+        }
+    }
+
+    private synchronized void sample() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            MemoryMXBean memory = connection.getPlatformMXBean(MemoryMXBean.class);
+            memory.gc();
+            long used = memory.getHeapMemoryUsage().getUsed();
+            long time = System.currentTimeMillis() - startMillis;
+            samples.get(samples.size() - 1).add(new long[] {time, used});
+            Files.write(
+                    samplesFile().toPath(),
+                    (time + "," + used + "," + samples.size() + System.lineSeparator())
+                            .getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed sampling heap of launch " + launch.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the time the launch still has to run for the configured soak duration, counted from the start of the
+     *     soak and not reset by restarts
+     */
+    long getRemainingMillis() {
+        long duration = TimeUnit.MINUTES.toMillis(launch.getSoak().get().getDurationMinutes());
+        return Math.max(0, startMillis + duration - System.currentTimeMillis());
+    }
+
+    /**
+     * Stops sampling, logs the classes which grew the most and returns the heap growth.
+     *
+     * @return the growth of the heap usage after GC in MiB per hour, fitted over the samples of all JVMs
+     * @throws InterruptedException if interrupted while waiting for the sampling to stop
+     */
+    double finish() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        synchronized (this) {
+            detach();
+            if (samples.size() > 1) {
+                log.info("Soak of launch " + launch.getId() + " spanned " + samples.size() + " JVMs");
+            }
+            return pooledGrowthPerHour(samples);
+        }
+    }
+
+    private ClassHistogram captureHistogram(String suffix) throws IOException, InterruptedException {
+        String output = Jcmd.execute(jvm, "GC.class_histogram");
+        String jvmSuffix = samples.size() > 1 ? "-" + samples.size() : "";
+        File file = launch.getReportFile(outputDirectory, "-histogram-" + suffix + jvmSuffix + ".txt");
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), output.getBytes(StandardCharsets.UTF_8));
+        return ClassHistogram.parse(output);
+    }
+
+    private File samplesFile() {
+        return launch.getReportFile(outputDirectory, "-soak.csv");
+    }
+
+    /**
+     * Fits a line through the samples with the least squares method.
+     *
+     * @param samples pairs of the time in milliseconds and the heap usage in bytes
+     * @return the slope of the line in MiB per hour, {@code 0} if there are less than two samples
+     */
+    static double growthPerHour(List<long[]> samples) {
+        return pooledGrowthPerHour(Collections.singletonList(samples));
+    }
+
+    /**
+     * Fits parallel lines through the samples of several JVMs with the least squares method, each JVM with its own
+     * intercept, so that the drop of the heap usage at a restart does not count as shrinking.
+     *
+     * @param jvms the samples of each JVM, pairs of the time in milliseconds and the heap usage in bytes
+     * @return the common slope of the lines in MiB per hour, {@code 0} if no JVM has two samples
+     */
+    static double pooledGrowthPerHour(Collection<List<long[]>> jvms) {
+        double covariance = 0;
+        double variance = 0;
+        for (List<long[]> samples : jvms) {
+            int n = samples.size();
+            if (n < 2) {
+                continue;
+            }
+            double meanX = 0;
+            double meanY = 0;
+            for (long[] sample : samples) {
+                meanX += sample[0] / MILLIS_PER_HOUR;
+                meanY += sample[1] / MEBIBYTE;
+            }
+            meanX /= n;
+            meanY /= n;
+            for (long[] sample : samples) {
+                double dx = sample[0] / MILLIS_PER_HOUR - meanX;
+                covariance += dx * (sample[1] / MEBIBYTE - meanY);
+                variance += dx * dx;
+            }
+        }
+        return variance == 0 ? 0 : covariance / variance;
+    }
+}
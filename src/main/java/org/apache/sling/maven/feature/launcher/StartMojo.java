@@ -20,20 +20,23 @@ package org.apache.sling.maven.feature.launcher;
 
 import javax.inject.Inject;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.ProcessBuilder.Redirect;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
@@ -59,19 +62,23 @@ import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.impl.ArtifactResolver;
 import org.eclipse.aether.repository.RemoteRepository;
-import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
-import org.eclipse.aether.resolution.ArtifactResult;
 
 /**
  * Start one or multiple <a href="https://sling.apache.org/documentation/development/feature-model.html">Sling Feature(s)</a>.
  */
-@Mojo(name = "start", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST)
+@Mojo(name = "start", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST, threadSafe = true)
 public class StartMojo extends AbstractMojo {
 
     private static final String JAVA_HOME = "JAVA_HOME";
     private static final String JAVA_OPTS = "JAVA_OPTS";
 
+    private static final long MIN_AUTO_SIZED_HEAP = 256L * 1024L * 1024L;
+
+    private static final Map<String, Object> EXTRACTION_LOCKS = new ConcurrentHashMap<>();
+
+    private static final long MEMORY_POLL_MILLIS = 5000;
+
     /**
      * The directory in which the features are launched (below its child directory {@code launchers/<launch-id>}).
      */
@@ -97,6 +104,10 @@ public class StartMojo extends AbstractMojo {
      * <id>...</id> <!-- the id of the launch, must be unique within the list, is mandatory-->
      * <feature>...</feature> <!-- the Maven coordinates of the feature model, mandatory unless featureFile is used  -->
      * <featureFile>...</featureFile> <!-- the path to the feature model, mandatory unless feature is used -->
+     * <features> <!-- alternatively, features the launcher aggregates in this order -->
+     *   <feature><groupId>...</groupId><artifactId>...</artifactId><version>...</version></feature>
+     *   <feature><file>src/test/features/test-support.json</file></feature>
+     * </features>
      * <launcherArguments> <!-- additional arguments to pass to the launcher -->
      *   <frameworkProperties>
      *     <org.osgi.service.http.port>8090</org.osgi.service.http.port>
@@ -109,7 +120,46 @@ public class StartMojo extends AbstractMojo {
      * </repositoryUrls>
      * <environmentVariables><!--additional environment variables to pass to the launcher -->
      *  <JAVA_HOME>...</JAVA_HOME>
-     * </environmentVariables>}
+     * </environmentVariables>
+     * <profile>default</profile> <!-- JFR settings to profile the launch with, the recording is dumped on stop -->
+     * <gcLog> <!-- write a GC log, analysed on stop, failing the build if pauses exceed the thresholds -->
+     *   <maxPauseP99Millis>200</maxPauseP99Millis>
+     *   <maxOverheadPercent>5</maxOverheadPercent>
+     * </gcLog>
+     * <stallTimeoutSeconds>60</stallTimeoutSeconds> <!-- capture thread dumps when the boot output stalls that long -->
+     * <snapshot>true</snapshot> <!-- snapshot the launch home once started, to be restored by the reset goal -->
+     * <hotDeploy>true</hotDeploy> <!-- allow pushing changed bundles into the running launch with the redeploy goal -->
+     * <tmpfs> <!-- place the launch home on a memory-backed filesystem if it has that much space left -->
+     *   <path>/dev/shm</path>
+     *   <size>2g</size>
+     * </tmpfs>
+     * <logStore>true</logStore> <!-- capture the output in a store which tests can query through LaunchLog -->
+     * <bootProfile/> <!-- report install and activation time per bundle, patterns for the output are configurable -->
+     * <warmup> <!-- send requests once started, until the JIT compiled the hot paths -->
+     *   <requests>
+     *     <request>GET http://localhost:8080/content/site.html</request>
+     *   </requests>
+     *   <iterations>200</iterations> <!-- or <durationSeconds> -->
+     *   <concurrency>4</concurrency>
+     *   <stabilizationTolerance>0.05</stabilizationTolerance> <!-- then until the median latency is stable -->
+     * </warmup>
+     * <recycling> <!-- restart between test classes signalling their end through LaunchRecycling -->
+     *   <afterTestClasses>20</afterTestClasses>
+     *   <maxUptimeMinutes>30</maxUptimeMinutes>
+     *   <maxHeapAfterGcMb>1024</maxHeapAfterGcMb>
+     *   <restoreSnapshot>true</restoreSnapshot> <!-- requires snapshot -->
+     * </recycling>
+     * <soak> <!-- keep the launch running until stop for at least durationMinutes and fail on heap growth -->
+     *   <durationMinutes>240</durationMinutes>
+     *   <sampleIntervalSeconds>60</sampleIntervalSeconds>
+     *   <maxHeapGrowthMbPerHour>10</maxHeapGrowthMbPerHour>
+     * </soak>
+     * <telemetryIntervalSeconds>5</telemetryIntervalSeconds> <!-- sample JVM metrics via the attach API -->
+     * <resources> <!-- Linux only, limits applied through a cgroup v2 or taskset as a fallback -->
+     *   <cpus>0-3</cpus>
+     *   <cpuQuota>2.0</cpuQuota>
+     *   <memory>4g</memory>
+     * </resources>}
      * </pre>
      *
      * <p>If no repository URLs are configured the following defaults are used, in order:
@@ -132,6 +182,98 @@ public class StartMojo extends AbstractMojo {
             required = true)
     private File attachedArtifactsDirectory;
 
+    /**
+     * How to handle launches whose memory footprint, i.e. their maximum heap multiplied with
+     * {@link #memoryOverheadFactor}, exceeds the memory available on the host or in the cgroup of the build. One of
+     * <ul>
+     *   <li>{@code OFF}: start the launch anyway</li>
+     *   <li>{@code WARN}: log a warning and start the launch</li>
+     *   <li>{@code WAIT}: wait up to {@link #memoryAdmissionTimeoutSeconds} for memory to become available, e.g.
+     *   because launches of other modules were stopped</li>
+     *   <li>{@code FAIL}: fail the build</li>
+     * </ul>
+     */
+    @Parameter(property = "feature-launcher.memoryAdmission", defaultValue = "OFF")
+    private MemoryBudget.Admission memoryAdmission;
+
+    /**
+     * The factor to multiply the maximum heap of a launch with to get its total memory footprint, accounting for
+     * metaspace, code cache, thread stacks and direct buffers.
+     */
+    @Parameter(property = "feature-launcher.memoryOverheadFactor", defaultValue = "1.5")
+    private double memoryOverheadFactor;
+
+    /**
+     * The maximum time to wait for memory to become available when {@link #memoryAdmission} is {@code WAIT}.
+     */
+    @Parameter(property = "feature-launcher.memoryAdmissionTimeoutSeconds", defaultValue = "300")
+    private int memoryAdmissionTimeoutSeconds;
+
+    /**
+     * Whether to lower the maximum heap of a launch so that its footprint fits into the available memory, before
+     * applying {@link #memoryAdmission}.
+     */
+    @Parameter(property = "feature-launcher.autoSizeHeap", defaultValue = "false")
+    private boolean autoSizeHeap;
+
+    /**
+     * If {@code true} the launches are prepared but not started. Instead a descriptor of each launch is written to
+     * {@code <outputDirectory>/feature-launcher/<id>.launch.properties}, from which the tests start the launches they
+     * need on first use through {@link OnDemandLaunches}, so that launches no selected test uses never boot.
+     * Settings which need the plugin to watch the running launch, like {@code snapshot}, {@code soak},
+     * {@code warmup}, {@code recycling} or {@code telemetryIntervalSeconds}, do not apply to launches started on
+     * demand.
+     */
+    @Parameter(property = "feature-launcher.onDemand", defaultValue = "false")
+    private boolean onDemand;
+
+    /**
+     * If {@code true} the launches are started without waiting for their frameworks to start, so that the build can
+     * go on with other work while they boot. The {@code await} goal then waits for them, takes their snapshots and
+     * warms them up. Requires {@link #trackProcess}.
+     */
+    @Parameter(property = "feature-launcher.async", defaultValue = "false")
+    private boolean async;
+
+    /**
+     * Whether to fail before starting a launch whose ports, i.e. the numeric values of framework properties like
+     * {@code org.osgi.service.http.port}, are in use or claimed by a launch of another module built in parallel.
+     */
+    @Parameter(property = "feature-launcher.checkPorts", defaultValue = "false")
+    private boolean checkPorts;
+
+    /**
+     * Whether to check the features of each launch before starting it: all referenced artifacts have to be
+     * available, the package imports and required bundles of the bundles have to be satisfied and no two bundles may
+     * have the same symbolic name. Broken features then fail the build right away instead of after the start
+     * timeout. Passed checks are remembered per hash of the features, unless they refer to snapshots.
+     */
+    @Parameter(property = "feature-launcher.preflight", defaultValue = "false")
+    private boolean preflight;
+
+    /**
+     * Links between launches through an in-process proxy on the loopback address which adds latency, jitter, a
+     * bandwidth limit and retransmission delays for dropped data, to run distributed performance tests on one host.
+     * The addresses {@code localhost:<port>} and {@code 127.0.0.1:<port>} of the target port in the framework
+     * properties and launcher variables of the {@code from} launch, or of all other launches if it is not set, are
+     * rewritten to the proxy. The {@code stop} goal reports the throughput of each link.
+     *
+     * <pre>{@code
+     * <link>
+     *   <from>author</from>
+     *   <to>publish</to>
+     *   <port>4503</port>
+     *   <proxyPort>14503</proxyPort> <!-- a free port if not set -->
+     *   <latencyMillis>40</latencyMillis>
+     *   <jitterMillis>10</jitterMillis>
+     *   <bandwidthKbps>10000</bandwidthKbps> <!-- kilobits per second per direction, unlimited if not set -->
+     *   <dropRate>0.01</dropRate>
+     * </link>
+     * }</pre>
+     */
+    @Parameter
+    private List<Link> links = new ArrayList<>();
+
     @Inject
     private ArtifactResolver resolver;
 
@@ -150,6 +292,9 @@ public class StartMojo extends AbstractMojo {
     @Inject
     private ProcessTracker processes;
 
+    @Inject
+    private ResolutionCache resolutions;
+
     /**
      * To look up UnArchiver implementations
      */
@@ -159,6 +304,11 @@ public class StartMojo extends AbstractMojo {
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
 
+        // the key of the launch whose memory or ports are claimed, as long as its process is not started
+        String claimingKey = null;
+        // the link proxies of this execution, closed again if it fails
+        List<LinkProxy> proxies = new ArrayList<>();
+        boolean started = false;
         try {
             // the feature launcher before version 1.1.28 used a single jar, while versions
             //  after that provide an assembly per SLING-10956
@@ -166,6 +316,10 @@ public class StartMojo extends AbstractMojo {
             boolean useAssembly =
                     !beforeAssemblyRange.containsVersion(new DefaultArtifactVersion(featureLauncherVersion));
 
+            if (async && !trackProcess) {
+                throw new MojoExecutionException("Starting launches asynchronously requires trackProcess");
+            }
+
             RepositorySystemSession repositorySession = mavenSession.getRepositorySession();
             File workDir = new File(outputDirectory, "launchers");
             workDir.mkdirs();
@@ -178,16 +332,13 @@ public class StartMojo extends AbstractMojo {
                 // fetch the assembly artifact
                 Artifact launcherAssemblyArtifact = new DefaultArtifact(
                         "org.apache.sling:org.apache.sling.feature.launcher:tar.gz:" + featureLauncherVersion);
-                File assemblyArchive = resolver.resolveArtifact(
-                                repositorySession, new ArtifactRequest(launcherAssemblyArtifact, remoteRepos, null))
-                        .getArtifact()
-                        .getFile();
+                File assemblyArchive = resolve(repositorySession, launcherAssemblyArtifact);
 
                 // unpack the file
                 UnArchiver unArchiver = archiverManager.getUnArchiver(assemblyArchive);
                 unArchiver.setSourceFile(assemblyArchive);
                 unArchiver.setDestFile(workDir);
-                unArchiver.extract();
+                extractLocked(unArchiver, workDir);
 
                 // system property
                 Path relPath = Paths.get(
@@ -201,12 +352,11 @@ public class StartMojo extends AbstractMojo {
             } else {
                 Artifact launcherArtifact = new DefaultArtifact(
                         "org.apache.sling:org.apache.sling.feature.launcher:" + featureLauncherVersion);
-                launcher = resolver.resolveArtifact(
-                                repositorySession, new ArtifactRequest(launcherArtifact, remoteRepos, null))
-                        .getArtifact()
-                        .getFile();
+                launcher = resolve(repositorySession, launcherArtifact);
             }
 
+            startLinks(proxies);
+
             for (Launch launch : launches) {
                 if (launch.isSkip()) {
                     getLog().info("Skipping starting launch with id " + launch.getId());
@@ -214,13 +364,7 @@ public class StartMojo extends AbstractMojo {
                 }
 
                 launch.validate();
-
-                File featureFile = launch.getFeature()
-                        .map(this::toArtifact)
-                        .map(a -> uncheckedResolveArtifact(repositorySession, a))
-                        .map(r -> r.getArtifact().getFile())
-                        .orElseGet(() -> launch.getFeatureFile()
-                                .get()); // the Launch is guaranteed to either have a feature or a featureFile set
+                rewriteLinks(launch, proxies);
 
                 String javahome = System.getenv(JAVA_HOME);
                 if (javahome == null || javahome.isEmpty()) {
@@ -229,6 +373,16 @@ public class StartMojo extends AbstractMojo {
                                     "The JAVA_HOME env variable was not set, falling back to the java.home system property");
                     javahome = System.getProperty("java.home");
                 }
+
+                List<File> featureFiles = getFeatureFiles(launch, repositorySession);
+                if (preflight) {
+                    preflight(launch, featureFiles, javahome, repositorySession);
+                }
+                List<String> vmOptions = getVmOptions(launch);
+                if (memoryAdmission != MemoryBudget.Admission.OFF && !onDemand) {
+                    claimingKey = launch.getQualifiedId(outputDirectory);
+                    vmOptions = admit(launch, vmOptions);
+                }
                 List<String> args = new ArrayList<>();
                 if (useAssembly) {
                     // use the post v1.1.28 launcher script
@@ -238,16 +392,13 @@ public class StartMojo extends AbstractMojo {
 
                     // SLING-9994 - if any extra vm options were supplied, apply them here
                     StringBuilder javaOptsBuilder = null;
-                    String[] vmOptions = launch.getLauncherArguments().getVmOptions();
                     for (String vmOption : vmOptions) {
-                        if (vmOption != null && !vmOption.isEmpty()) {
-                            if (javaOptsBuilder == null) {
-                                javaOptsBuilder = new StringBuilder();
-                            } else {
-                                javaOptsBuilder.append(" ");
-                            }
-                            javaOptsBuilder.append(vmOption);
+                        if (javaOptsBuilder == null) {
+                            javaOptsBuilder = new StringBuilder();
+                        } else {
+                            javaOptsBuilder.append(" ");
                         }
+                        javaOptsBuilder.append(vmOption);
                     }
                     if (javaOptsBuilder != null) {
                         // pass vmOptions through JAVA_OPTS environment variable?
@@ -266,12 +417,7 @@ public class StartMojo extends AbstractMojo {
 
                     args.add(javahome + File.separatorChar + "bin" + File.separatorChar + "java");
                     // SLING-9994 - if any extra vm options were supplied, apply them here
-                    String[] vmOptions = launch.getLauncherArguments().getVmOptions();
-                    for (String vmOption : vmOptions) {
-                        if (vmOption != null && !vmOption.isEmpty()) {
-                            args.add(vmOption);
-                        }
-                    }
+                    args.addAll(vmOptions);
                     args.add("-jar");
                     args.add(launcher.getAbsolutePath());
                 }
@@ -300,8 +446,10 @@ public class StartMojo extends AbstractMojo {
                 repositoryUrls.forEach(joiner::add);
                 args.add(joiner.toString());
 
-                args.add("-f");
-                args.add(featureFile.getAbsolutePath());
+                for (File featureFile : featureFiles) {
+                    args.add("-f");
+                    args.add(featureFile.getAbsolutePath());
+                }
                 args.add("-p");
                 args.add(launch.getId());
 
@@ -311,6 +459,14 @@ public class StartMojo extends AbstractMojo {
                     args.add(frameworkProperty.getKey() + "=" + frameworkProperty.getValue());
                 }
 
+                if (launch.isHotDeploy()) {
+                    HotDeployment deployment = new HotDeployment(launch, outputDirectory);
+                    deployment.reset(ProjectArtifacts.collect(project));
+                    args.add("-D");
+                    args.add(launch.getHotDeployProperty() + "="
+                            + deployment.getDeployDirectory().getAbsolutePath());
+                }
+
                 for (Map.Entry<String, String> variable :
                         launch.getLauncherArguments().getVariables().entrySet()) {
                     args.add("-V");
@@ -318,6 +474,14 @@ public class StartMojo extends AbstractMojo {
                 }
 
                 // TODO - add support for all arguments supported by the feature launcher
+                if (launch.getResources().isPresent()) {
+                    args = ResourceIsolation.wrap(
+                            launch.getId(),
+                            launch.getQualifiedId(outputDirectory),
+                            launch.getResources().get(),
+                            args,
+                            getLog());
+                }
                 ProcessBuilder pb = new ProcessBuilder(args);
                 pb.redirectOutput(Redirect.INHERIT);
                 pb.redirectInput(Redirect.INHERIT);
@@ -327,43 +491,45 @@ public class StartMojo extends AbstractMojo {
                     pb.environment().put(e.getKey(), e.getValue());
                 });
 
-                getLog().info("Starting launch with id '" + launch.getId() + "', args=" + args);
+                if (launch.getTmpfs().isPresent()) {
+                    new TmpfsHome(launch, workDir, getLog()).prepare();
+                }
 
-                CountDownLatch latch = new CountDownLatch(1);
-
-                Process process = pb.start();
-
-                Thread monitor = new Thread("launch-monitor-" + launch.getId()) {
-                    @Override
-                    public void run() {
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-                        String line;
-                        try {
-                            while ((line = reader.readLine()) != null) {
-                                System.out.println(line); // NOSONAR - we pass through the subprocess stderr
-                                if (line.contains("Framework started")) {
-                                    latch.countDown();
-                                    break;
-                                }
-                            }
-                        } catch (IOException e) {
-                            getLog().warn(e.getMessage(), e);
-                        }
-                    }
-                };
-                monitor.start();
-                getLog().info("Waiting for " + launch.getId() + " to start");
-                boolean started = latch.await(launch.getStartTimeoutSeconds(), TimeUnit.SECONDS);
-                if (!started) {
-                    ProcessTracker.stop(process);
-                    throw new MojoExecutionException("Launch " + launch.getId() + " failed to start in "
-                            + launch.getStartTimeoutSeconds() + " seconds.");
+                if (onDemand) {
+                    File descriptor = launch.getReportFile(outputDirectory, ".launch.properties");
+                    new LaunchDescriptor(
+                                    args, workDir, launch.getEnvironmentVariables(), launch.getStartTimeoutSeconds())
+                            .write(descriptor);
+                    getLog().info("Prepared launch with id '" + launch.getId() + "' to be started on demand from "
+                            + descriptor);
+                    continue;
                 }
 
-                if (trackProcess) {
-                    processes.startTracking(launch.getId(), process);
+                getLog().info("Starting launch with id '" + launch.getId() + "', args=" + args);
+
+                LaunchRunner runner =
+                        new LaunchRunner(processes, outputDirectory, trackProcess, mavenSession.isParallel(), getLog());
+                if (checkPorts) {
+                    claimingKey = runner.key(launch);
+                    claimPorts(launch, runner.key(launch));
+                }
+                if (launch.isLogStore()) {
+                    LaunchLogStore.delete(runner.getLogStoreDirectory(launch));
                 }
+                if (async) {
+                    PendingLaunch pending = runner.spawn(launch, pb);
+                    processes.startTracking(runner.key(launch), pending.getProcess());
+                    claimingKey = null;
+                    processes.addPendingLaunch(runner.key(launch), pending);
+                    getLog().info("Launch with id '" + launch.getId()
+                            + "' is starting, wait for it with the await goal");
+                    continue;
+                }
+                Process process = runner.start(launch, pb);
+                claimingKey = null;
+                runner.completeStart(launch, pb, process);
             }
+            started = true;
 
         } catch (NoSuchArchiverException
                 | InvalidVersionSpecificationException
@@ -373,15 +539,204 @@ public class StartMojo extends AbstractMojo {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new MojoExecutionException("Execution interrupted", e);
+        } finally {
+            if (claimingKey != null) {
+                // the launch failed before its process was started, which otherwise releases them when stopped
+                processes.releaseMemory(claimingKey);
+                processes.releasePorts(claimingKey);
+            }
+            if (!started) {
+                closeLinks(proxies);
+            }
+        }
+    }
+
+    /**
+     * Extracts the launcher while holding a lock on the directory, which is also taken by other processes, so that
+     * executions sharing the output directory do not overwrite the launcher while another one starts it.
+     */
+    private static void extractLocked(UnArchiver unArchiver, File workDir) throws IOException {
+        Object jvmLock = EXTRACTION_LOCKS.computeIfAbsent(workDir.getCanonicalPath(), k -> new Object());
+        synchronized (jvmLock) {
+            try (FileChannel channel = FileChannel.open(
+                    workDir.toPath().resolve(".extract.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    unArchiver.extract();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private void claimPorts(Launch launch, String key) throws MojoExecutionException {
+        Set<Integer> ports = LaunchPorts.of(launch);
+        Map<Integer, String> conflicts = processes.claimPorts(key, ports);
+        if (!conflicts.isEmpty()) {
+            throw new MojoExecutionException("Ports of launch " + launch.getId()
+                    + " are already used by launches of other modules: " + conflicts);
+        }
+        for (Integer port : ports) {
+            if (!LaunchPorts.isFree(port)) {
+                processes.releasePorts(key);
+                throw new MojoExecutionException(
+                        "Port " + port + " of launch " + launch.getId() + " is already in use");
+            }
         }
     }
 
-    private ArtifactResult uncheckedResolveArtifact(RepositorySystemSession repositorySession, Artifact artifact) {
+    /**
+     * Checks the memory footprint of a launch against the available memory and reserves it.
+     *
+     * @return the JVM options to start the launch with, which have a lowered heap if auto-sizing kicked in
+     */
+    private List<String> admit(Launch launch, List<String> vmOptions)
+            throws MojoExecutionException, MojoFailureException, InterruptedException {
+        long footprint;
         try {
-            return resolver.resolveArtifact(repositorySession, new ArtifactRequest(artifact, remoteRepos, null));
-        } catch (ArtifactResolutionException e) {
-            throw new RuntimeException(e);
+            footprint = footprint(vmOptions);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Invalid launch '" + launch.getId() + "': " + e.getMessage(), e);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(memoryAdmissionTimeoutSeconds);
+        boolean waiting = false;
+        String key = launch.getQualifiedId(outputDirectory);
+        while (true) {
+            long reportedAvailable = MemoryBudget.availableBytes();
+            long available = reportedAvailable - processes.getUnusedReservedMemory();
+            if (footprint > available && autoSizeHeap) {
+                long fittingHeap = (long) (available / memoryOverheadFactor);
+                if (fittingHeap >= MIN_AUTO_SIZED_HEAP) {
+                    vmOptions = MemoryBudget.withHeap(vmOptions, fittingHeap);
+                    footprint = footprint(vmOptions);
+                    getLog().warn("Lowered the maximum heap of launch " + launch.getId() + " to "
+                            + MemoryBudget.format(fittingHeap) + " to fit into the available memory");
+                }
+            }
+            if (footprint <= available) {
+                if (processes.tryReserveMemory(key, footprint, reportedAvailable)) {
+                    break;
+                }
+                // a launch of another module reserved the memory in the meantime
+                continue;
+            }
+
+            String message = "Launch " + launch.getId() + " needs " + MemoryBudget.format(footprint)
+                    + " of memory, but only " + MemoryBudget.format(Math.max(0, available)) + " are available";
+            if (memoryAdmission == MemoryBudget.Admission.WARN) {
+                getLog().warn(message);
+                processes.reserveMemory(key, footprint);
+                break;
+            }
+            if (memoryAdmission == MemoryBudget.Admission.FAIL) {
+                throw new MojoFailureException(message);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new MojoFailureException(
+                        message + " after waiting " + memoryAdmissionTimeoutSeconds + " seconds");
+            }
+            if (!waiting) {
+                getLog().info(message + ", waiting for memory to become available");
+                waiting = true;
+            }
+            Thread.sleep(MEMORY_POLL_MILLIS);
+        }
+        getLog().debug("Admitted launch " + launch.getId() + " with a footprint of " + MemoryBudget.format(footprint));
+        return vmOptions;
+    }
+
+    private long footprint(List<String> vmOptions) {
+        return (long) (MemoryBudget.heapBytes(vmOptions, MemoryBudget.physicalBytes()) * memoryOverheadFactor);
+    }
+
+    /**
+     * Collects the options for the launched JVM, i.e. the configured ones and the ones required by the launch
+     * settings.
+     */
+    private List<String> getVmOptions(Launch launch) throws IOException, MojoExecutionException {
+        List<String> vmOptions = new ArrayList<>();
+        for (String vmOption : launch.getLauncherArguments().getVmOptions()) {
+            if (vmOption != null && !vmOption.isEmpty()) {
+                vmOptions.add(vmOption);
+            }
+        }
+        launch.getProfile().ifPresent(settings -> {
+            getLog().info("Profiling launch " + launch.getId() + " with JFR settings '" + settings + "'");
+            vmOptions.add("-XX:StartFlightRecording=name=" + launch.getId() + ",settings=" + settings);
+        });
+        if (launch.getGcLog().isPresent()) {
+            File gcLog = launch.getReportFile(outputDirectory, GcLogAnalysis.FILE_SUFFIX);
+            Files.createDirectories(gcLog.getParentFile().toPath());
+            // the logs of an earlier run would skew the analysis
+            for (List<Path> files : GcLogAnalysis.files(gcLog).values()) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            try {
+                // launches run in the launchers directory
+                vmOptions.add(GcLogAnalysis.vmOption(
+                        gcLog,
+                        new File(outputDirectory, "launchers"),
+                        launch.getGcLog().get()));
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Invalid launch '" + launch.getId() + "': " + e.getMessage(), e);
+            }
+        }
+        return vmOptions;
+    }
+
+    /**
+     * Returns the feature files of a launch, in the order in which the launcher aggregates them.
+     */
+    private List<File> getFeatureFiles(Launch launch, RepositorySystemSession repositorySession)
+            throws ArtifactResolutionException, IOException, InterruptedException {
+        if (launch.getFeatures().isEmpty()) {
+            // the Launch is guaranteed to either have a feature or a featureFile set
+            File featureFile = launch.getFeature().isPresent()
+                    ? resolve(repositorySession, toArtifact(launch.getFeature().get()))
+                    : launch.getFeatureFile().get();
+            return Collections.singletonList(featureFile);
+        }
+        List<File> features = new ArrayList<>();
+        for (FeatureReference reference : launch.getFeatures()) {
+            features.add(
+                    reference.getFile().isPresent()
+                            ? reference.getFile().get()
+                            : resolve(repositorySession, toArtifact(reference)));
         }
+        return features;
+    }
+
+    private void preflight(
+            Launch launch, List<File> featureFiles, String javahome, RepositorySystemSession repositorySession)
+            throws IOException, InterruptedException, MojoFailureException {
+        FeaturePreflight.ArtifactSource source = artifact -> {
+            File attached = new File(attachedArtifactsDirectory, FeatureArtifacts.repositoryPath(artifact));
+            return attached.isFile() ? attached : resolve(repositorySession, artifact);
+        };
+        List<String> problems = new FeaturePreflight(
+                        source,
+                        javahome,
+                        launch.getReportFile(outputDirectory, "-preflight"),
+                        Runtime.getRuntime().availableProcessors(),
+                        getLog())
+                .check(
+                        featureFiles,
+                        launch.getLauncherArguments().getVariables(),
+                        launch.getLauncherArguments().getFrameworkProperties());
+        if (!problems.isEmpty()) {
+            throw new MojoFailureException("Launch " + launch.getId() + " failed the pre-flight checks:"
+                    + System.lineSeparator() + "  " + String.join(System.lineSeparator() + "  ", problems));
+        }
+    }
+
+    private File resolve(RepositorySystemSession repositorySession, Artifact artifact)
+            throws ArtifactResolutionException, InterruptedException {
+        return resolutions
+                .resolve(resolver, repositorySession, artifact, remoteRepos)
+                .getFile();
     }
 
     private org.eclipse.aether.artifact.Artifact toArtifact(Dependency dependency) {
@@ -393,6 +748,50 @@ public class StartMojo extends AbstractMojo {
                 dependency.getVersion());
     }
 
+    private void startLinks(List<LinkProxy> proxies) throws MojoExecutionException, IOException {
+        for (Link link : links) {
+            link.validate();
+            for (String id : new String[] {link.getFrom(), link.getTo()}) {
+                if (id != null && launches.stream().noneMatch(launch -> id.equals(launch.getId()))) {
+                    throw new MojoExecutionException("Link " + link.getName() + " refers to unknown launch " + id);
+                }
+            }
+            LinkProxy proxy = new LinkProxy(link, getLog());
+            int port = proxy.start();
+            proxies.add(proxy);
+            processes.addLink(outputDirectory.getAbsolutePath(), proxy);
+            getLog().info("Started link " + link.getName() + " on proxy port " + port);
+        }
+    }
+
+    private void closeLinks(List<LinkProxy> proxies) {
+        for (LinkProxy proxy : proxies) {
+            processes.removeLink(outputDirectory.getAbsolutePath(), proxy);
+            try {
+                proxy.close();
+            } catch (IOException e) {
+                getLog().warn("Failed closing link " + proxy.getLink().getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void rewriteLinks(Launch launch, List<LinkProxy> proxies) {
+        for (LinkProxy proxy : proxies) {
+            Link link = proxy.getLink();
+            if (link.getTo().equals(launch.getId())
+                    || (link.getFrom() != null && !link.getFrom().equals(launch.getId()))) {
+                continue;
+            }
+            LauncherArguments arguments = launch.getLauncherArguments();
+            arguments
+                    .getFrameworkProperties()
+                    .replaceAll((name, value) -> LinkProxy.rewrite(value, link.getPort(), proxy.getPort()));
+            arguments
+                    .getVariables()
+                    .replaceAll((name, value) -> LinkProxy.rewrite(value, link.getPort(), proxy.getPort()));
+        }
+    }
+
     /**
      * Creates a temporary maven repository and stores all artifacts attached to the current Maven build
      * in that directory following the Maven2 repository layout.
@@ -409,19 +808,9 @@ public class StartMojo extends AbstractMojo {
 
         getLog().info("Created attached artifact repository at: " + tempRepo);
 
-        // Store the main project artifact if it has a file
-        org.apache.maven.artifact.Artifact mainArtifact = project.getArtifact();
-        if (mainArtifact != null
-                && mainArtifact.getFile() != null
-                && mainArtifact.getFile().exists()) {
-            copyArtifactToRepository(mainArtifact, tempRepo);
-        }
-
-        // Store all attached artifacts
-        for (org.apache.maven.artifact.Artifact attachedArtifact : project.getAttachedArtifacts()) {
-            if (attachedArtifact.getFile() != null && attachedArtifact.getFile().exists()) {
-                copyArtifactToRepository(attachedArtifact, tempRepo);
-            }
+        // Store the main project artifact and all attached artifacts
+        for (org.apache.maven.artifact.Artifact artifact : ProjectArtifacts.collect(project)) {
+            copyArtifactToRepository(artifact, tempRepo);
         }
     }
 
@@ -443,19 +832,7 @@ public class StartMojo extends AbstractMojo {
         Files.createDirectories(artifactDir);
 
         // Build the filename: artifactId-version[-classifier].extension
-        StringBuilder filename = new StringBuilder();
-        filename.append(artifact.getArtifactId()).append("-").append(artifact.getVersion());
-        if (artifact.getClassifier() != null && !artifact.getClassifier().isEmpty()) {
-            filename.append("-").append(artifact.getClassifier());
-        }
-        String extension = artifact.getType();
-        if (artifact.getArtifactHandler() != null
-                && artifact.getArtifactHandler().getExtension() != null) {
-            extension = artifact.getArtifactHandler().getExtension();
-        }
-        filename.append(".").append(extension);
-
-        Path targetFile = artifactDir.resolve(filename.toString());
+        Path targetFile = artifactDir.resolve(ProjectArtifacts.getFileName(artifact));
         Files.copy(artifact.getFile().toPath(), targetFile);
 
         getLog().debug("Copied artifact " + artifact + " to " + targetFile);
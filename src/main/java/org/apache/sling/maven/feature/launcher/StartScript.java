@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the scripts which start an exported launch with the launcher, features and repository next to them.
+ */
+class StartScript {
+
+    private static final String JAVA_OPTS = "JAVA_OPTS";
+
+    private final String launchId;
+    private final String launcher;
+    private final boolean assembly;
+    private final List<String> vmOptions;
+    private final Map<String, String> environment;
+    private final List<String> arguments;
+
+    /**
+     * @param launchId the id of the launch
+     * @param launcher the path of the launcher script, or of the launcher jar before version 1.1.28, relative to the
+     *     export directory and with {@code /} as separator
+     * @param assembly whether the launcher is the script of the assembly
+     * @param vmOptions the options of the launched JVM
+     * @param environment the environment variables of the launch
+     * @param arguments the launcher arguments besides the repository, with paths relative to the export directory
+     */
+    StartScript(
+            String launchId,
+            String launcher,
+            boolean assembly,
+            List<String> vmOptions,
+            Map<String, String> environment,
+            List<String> arguments) {
+        this.launchId = launchId;
+        this.launcher = launcher;
+        this.assembly = assembly;
+        this.vmOptions = vmOptions;
+        this.environment = environment;
+        this.arguments = arguments;
+    }
+
+    String unix() {
+        StringBuilder script = new StringBuilder()
+                .append("#!/bin/sh\n")
+                .append("# Starts launch ")
+                .append(launchId)
+                .append(" offline, generated by the feature-launcher-maven-plugin\n")
+                .append("DIR=\"$(cd \"$(dirname \"$0\")\" && pwd)\"\n")
+                .append("cd \"$DIR\" || exit 1\n");
+        environment.forEach((name, value) -> {
+            if (!name.equals(JAVA_OPTS) || !assembly) {
+                script.append("export ")
+                        .append(name)
+                        .append('=')
+                        .append(quoteUnix(value))
+                        .append('\n');
+            }
+        });
+        List<String> command = new ArrayList<>();
+        if (assembly) {
+            String javaOpts = javaOpts();
+            if (!javaOpts.isEmpty()) {
+                script.append("export JAVA_OPTS=").append(quoteUnix(javaOpts)).append('\n');
+            }
+            command.add("sh");
+            command.add(quoteUnix(launcher));
+        } else {
+            command.add("\"${JAVA_HOME:+$JAVA_HOME/bin/}java\"");
+            vmOptions.forEach(option -> command.add(quoteUnix(option)));
+            command.add("-jar");
+            command.add(quoteUnix(launcher));
+        }
+        command.add("-u");
+        command.add("\"file:$DIR/repository\"");
+        arguments.forEach(argument -> command.add(quoteUnix(argument)));
+        command.add("\"$@\"");
+        return script.append("exec ")
+                .append(String.join(" ", command))
+                .append('\n')
+                .toString();
+    }
+
+    String windows() {
+        StringBuilder script = new StringBuilder()
+                .append("@echo off\r\n")
+                .append("rem Starts launch ")
+                .append(launchId)
+                .append(" offline, generated by the feature-launcher-maven-plugin\r\n")
+                .append("setlocal\r\n")
+                .append("cd /d \"%~dp0\"\r\n")
+                .append("set \"DIR=%CD:\\=/%\"\r\n");
+        environment.forEach((name, value) -> {
+            if (!name.equals(JAVA_OPTS) || !assembly) {
+                script.append("set \"")
+                        .append(name)
+                        .append('=')
+                        .append(escapeWindows(value))
+                        .append("\"\r\n");
+            }
+        });
+        List<String> command = new ArrayList<>();
+        if (assembly) {
+            String javaOpts = javaOpts();
+            if (!javaOpts.isEmpty()) {
+                script.append("set \"JAVA_OPTS=")
+                        .append(escapeWindows(javaOpts))
+                        .append("\"\r\n");
+            }
+            command.add("call");
+            command.add(quoteWindows(launcher.replace('/', '\\') + ".bat"));
+        } else {
+            script.append("set \"JAVA=java\"\r\n")
+                    .append("if defined JAVA_HOME set \"JAVA=%JAVA_HOME%\\bin\\java\"\r\n");
+            command.add("\"%JAVA%\"");
+            vmOptions.forEach(option -> command.add(quoteWindows(option)));
+            command.add("-jar");
+            command.add(quoteWindows(launcher.replace('/', '\\')));
+        }
+        command.add("-u");
+        command.add("\"file:///%DIR%/repository\"");
+        arguments.forEach(argument -> command.add(quoteWindows(argument)));
+        command.add("%*");
+        return script.append(String.join(" ", command)).append("\r\n").toString();
+    }
+
+    /**
+     * @return the VM options followed by the configured {@code JAVA_OPTS}, like the {@code start} goal passes them
+     */
+    private String javaOpts() {
+        List<String> options = new ArrayList<>(vmOptions);
+        String configured = environment.get(JAVA_OPTS);
+        if (configured != null && !configured.isEmpty()) {
+            options.add(configured);
+        }
+        return String.join(" ", options);
+    }
+
+    static String quoteUnix(String value) {
+        return "'" + value.replace("'", "'\"'\"'") + "'";
+    }
+
+    static String quoteWindows(String value) {
+        return "\"" + escapeWindows(value) + "\"";
+    }
+
+    private static String escapeWindows(String value) {
+        return value.replace("%", "%%").replace("\"", "\"\"");
+    }
+}
@@ -20,7 +20,16 @@ package org.apache.sling.maven.feature.launcher;
 
 import javax.inject.Inject;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.plugin.AbstractMojo;
@@ -36,7 +45,7 @@ import org.codehaus.plexus.components.interactivity.PrompterException;
 /**
  * Stop one or multiple <a href="https://sling.apache.org/documentation/development/feature-model.html">Sling Feature(s)</a>.
  */
-@Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST)
+@Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST, threadSafe = true)
 public class StopMojo extends AbstractMojo {
 
     // TODO: extract this field into common parent class
@@ -59,6 +68,13 @@ public class StopMojo extends AbstractMojo {
     @Parameter(required = true)
     private List<Launch> launches;
 
+    /**
+     * The directory in which the features are launched, reports are written below its child directory
+     * {@code feature-launcher}.
+     */
+    @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
+    private File outputDirectory;
+
     @Inject
     private ProcessTracker processes;
 
@@ -83,6 +99,7 @@ public class StopMojo extends AbstractMojo {
                 getLog().warn("Don't wait for user input as Maven is not running in interactive mode");
             }
         }
+        List<String> failures = new ArrayList<>();
         try {
             for (Launch launch : launches) {
                 if (launch.isSkip()) {
@@ -90,12 +107,153 @@ public class StopMojo extends AbstractMojo {
                     continue; // skip it
                 }
 
+                Optional<SoakMonitor> soak = processes.removeSoak(launch.getQualifiedId(outputDirectory));
+                if (soak.isPresent()) {
+                    finishSoak(launch, soak.get()).ifPresent(failures::add);
+                }
+
+                if (launch.getProfile().isPresent()) {
+                    dumpRecording(launch);
+                }
+
                 getLog().info("Stopping launch with id " + launch.getId());
-                processes.stop(launch.getId());
+                processes.stop(launch.getQualifiedId(outputDirectory));
+                if (launch.getResources().isPresent()) {
+                    ResourceIsolation.release(launch.getQualifiedId(outputDirectory), getLog());
+                }
+                if (launch.getTmpfs().isPresent()) {
+                    releaseTmpfs(launch);
+                }
+
+                if (launch.getProfile().isPresent()) {
+                    summarizeRecording(launch);
+                }
+                if (launch.getGcLog().isPresent()) {
+                    failures.addAll(analyzeGcLog(launch));
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        stopLinks();
+        if (!failures.isEmpty()) {
+            throw new MojoFailureException(String.join(System.lineSeparator(), failures));
+        }
+    }
+
+    /**
+     * Closes the link proxies between the launches and reports their throughput, also to
+     * {@code feature-launcher/links.txt}.
+     */
+    private void stopLinks() {
+        List<String> reports = new ArrayList<>();
+        for (LinkProxy proxy : processes.removeLinks(outputDirectory.getAbsolutePath())) {
+            try {
+                proxy.close();
+            } catch (IOException e) {
+                getLog().warn("Failed closing link " + proxy.getLink().getName() + ": " + e.getMessage(), e);
+            }
+            String report = proxy.report();
+            getLog().info(report);
+            reports.add(report);
+        }
+        if (reports.isEmpty()) {
+            return;
+        }
+        Path report = outputDirectory.toPath().resolve("feature-launcher").resolve("links.txt");
+        try {
+            Files.createDirectories(report.getParent());
+            Files.write(report, reports);
+        } catch (IOException e) {
+            getLog().warn("Failed writing link report " + report + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void releaseTmpfs(Launch launch) {
+        try {
+            new TmpfsHome(launch, new File(outputDirectory, "launchers"), getLog()).release();
+        } catch (IOException e) {
+            getLog().warn(
+                            "Failed releasing memory-backed home directory of launch " + launch.getId() + ": "
+                                    + e.getMessage(),
+                            e);
+        }
+    }
+
+    /**
+     * Keeps the launch running for the rest of its soak duration and evaluates the heap growth.
+     *
+     * @return a failure message if the heap grew faster than allowed
+     */
+    private Optional<String> finishSoak(Launch launch, SoakMonitor soak) throws InterruptedException {
+        long remaining = soak.getRemainingMillis();
+        if (remaining > 0) {
+            getLog().info("Keeping launch " + launch.getId() + " running for another "
+                    + TimeUnit.MILLISECONDS.toMinutes(remaining) + " minutes to complete its soak");
+            Thread.sleep(remaining);
+        }
+        double growth = soak.finish();
+        double allowed = launch.getSoak().get().getMaxHeapGrowthMbPerHour();
+        getLog().info(String.format(
+                "Heap usage after GC of launch %s grew by %.2f MiB per hour", launch.getId(), growth));
+        if (growth > allowed) {
+            return Optional.of(String.format(
+                    "Launch %s leaks memory: heap usage after GC grew by %.2f MiB per hour, more than the allowed %.2f",
+                    launch.getId(), growth, allowed));
+        }
+        return Optional.empty();
+    }
+
+    private void dumpRecording(Launch launch) throws InterruptedException {
+        Optional<ProcessHandle> jvm =
+                processes.get(launch.getQualifiedId(outputDirectory)).flatMap(Jcmd::findJvm);
+        if (!jvm.isPresent()) {
+            getLog().warn("No JVM found for launch " + launch.getId() + ", skip dumping the JFR recording");
+            return;
+        }
+        File recording = launch.getReportFile(outputDirectory, ".jfr");
+        try {
+            Files.createDirectories(recording.getParentFile().toPath());
+            Files.deleteIfExists(recording.toPath());
+            Jcmd.execute(jvm.get(), "JFR.dump", "name=" + launch.getId(), "filename=" + recording.getAbsolutePath());
+            getLog().info("Dumped JFR recording of launch " + launch.getId() + " to " + recording);
+        } catch (IOException e) {
+            getLog().warn("Failed dumping JFR recording of launch " + launch.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void summarizeRecording(Launch launch) {
+        File recording = launch.getReportFile(outputDirectory, ".jfr");
+        if (!recording.isFile()) {
+            return;
+        }
+        try {
+            JfrSummary.read(recording.toPath()).log(launch.getId(), getLog());
+        } catch (IOException e) {
+            getLog().warn("Failed reading JFR recording " + recording + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Analyses the GC log of the stopped launch.
+     *
+     * @return the failure messages for the exceeded thresholds
+     */
+    private List<String> analyzeGcLog(Launch launch) {
+        File gcLog = launch.getReportFile(outputDirectory, GcLogAnalysis.FILE_SUFFIX);
+        try {
+            Map<String, List<Path>> files = GcLogAnalysis.files(gcLog);
+            if (files.isEmpty()) {
+                getLog().warn("No GC log found for launch " + launch.getId() + " at " + gcLog);
+                return Collections.emptyList();
+            }
+            GcLogAnalysis analysis = GcLogAnalysis.read(files.values());
+            analysis.log(launch.getId(), getLog());
+            return analysis.checkThresholds(launch.getId(), launch.getGcLog().get());
+        } catch (IOException e) {
+            getLog().warn("Failed reading GC log " + gcLog + ": " + e.getMessage(), e);
+            return Collections.emptyList();
+        }
     }
 
     protected void waitForUserInput() throws MojoFailureException {
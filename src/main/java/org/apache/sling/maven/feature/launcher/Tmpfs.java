@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings for placing the home directory of a launch on a memory-backed filesystem.
+ */
+public class Tmpfs {
+
+    private String path = "/dev/shm";
+    private String size = "1g";
+    private List<String> copyBack = new ArrayList<>(Arrays.asList("**.log", "logs/**", "**/logs/**"));
+
+    /**
+     * @return the directory on the memory-backed filesystem below which the home directory is created
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the space the launch may use, in the format of {@code -Xmx}, e.g. {@code 2g}; if less is available
+     *         the home directory stays on disk
+     */
+    public String getSize() {
+        return size;
+    }
+
+    public void setSize(String size) {
+        this.size = size;
+    }
+
+    /**
+     * @return glob patterns of the files relative to the home directory which are copied back to disk on stop
+     */
+    public List<String> getCopyBack() {
+        return copyBack;
+    }
+
+    public void setCopyBack(List<String> copyBack) {
+        this.copyBack = copyBack;
+    }
+
+    long getSizeBytes() {
+        return MemoryBudget.parseSize(size);
+    }
+
+    void validate(String launchId) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId + "': tmpfs path is not set");
+        }
+        try {
+            getSizeBytes();
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': tmpfs size '" + size + "' is not a valid size");
+        }
+    }
+}
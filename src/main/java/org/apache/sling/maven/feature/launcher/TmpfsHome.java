@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Places the home directory of a launch ({@code launchers/<launch-id>}) on a memory-backed filesystem, by making it
+ * a symbolic link to a directory there.
+ *
+ * <p>The directory on the memory-backed filesystem is named after the launch and the build directory, so that
+ * launches of different projects do not collide and a directory left over by an aborted build is reused.</p>
+ */
+class TmpfsHome {
+
+    private final String launchId;
+    private final Tmpfs tmpfs;
+    private final Path home;
+    private final Path memoryHome;
+    private final Log log;
+
+    TmpfsHome(Launch launch, File workDir, Log log) {
+        this.launchId = launch.getId();
+        this.tmpfs = launch.getTmpfs().get();
+        this.home = new File(workDir, launch.getId()).toPath();
+        this.memoryHome =
+                Paths.get(tmpfs.getPath(), "feature-launcher-" + launch.getQualifiedId(workDir.getParentFile()));
+        this.log = log;
+    }
+
+    /**
+     * Moves the home directory to the memory-backed filesystem, unless there is not enough space left on it.
+     *
+     * @return {@code true} if the home directory is on the memory-backed filesystem
+     * @throws IOException if moving the home directory fails
+     */
+    boolean prepare() throws IOException {
+        if (Files.isSymbolicLink(home)) {
+            Files.delete(home);
+        }
+        Path root = Paths.get(tmpfs.getPath());
+        if (!Files.isDirectory(root) || !Files.isWritable(root)) {
+            log.warn("Memory-backed directory " + root + " of launch " + launchId
+                    + " is not a writable directory, keeping the home directory on disk");
+            return false;
+        }
+        long inUse = Files.isDirectory(memoryHome) ? FileUtils.sizeOfDirectory(memoryHome.toFile()) : 0;
+        long available = Files.getFileStore(root).getUsableSpace() + inUse;
+        if (available < tmpfs.getSizeBytes()) {
+            log.warn("Only " + MemoryBudget.format(available) + " are available in " + root + " for launch "
+                    + launchId + " instead of " + MemoryBudget.format(tmpfs.getSizeBytes())
+                    + ", keeping the home directory on disk");
+            FileUtils.deleteDirectory(memoryHome.toFile());
+            return false;
+        }
+
+        if (Files.isDirectory(home)) {
+            // carry over the state of an earlier launch on disk
+            FileUtils.deleteDirectory(memoryHome.toFile());
+            FileUtils.copyDirectory(home.toFile(), memoryHome.toFile());
+            FileUtils.deleteDirectory(home.toFile());
+        }
+        Files.createDirectories(memoryHome);
+        Files.createSymbolicLink(home, memoryHome);
+        log.info("Placed home directory of launch " + launchId + " in " + memoryHome);
+        return true;
+    }
+
+    /**
+     * Copies the files to keep back to the home directory on disk and frees the memory-backed filesystem.
+     *
+     * @throws IOException if copying fails
+     */
+    void release() throws IOException {
+        if (!Files.isSymbolicLink(home)) {
+            return;
+        }
+        Path source = home.toRealPath();
+        Path target = home.resolveSibling(home.getFileName() + ".tmpfs-copy");
+        FileUtils.deleteDirectory(target.toFile());
+        List<PathMatcher> matchers = tmpfs.getCopyBack().stream()
+                .map(p -> FileSystems.getDefault().getPathMatcher("glob:" + p))
+                .collect(Collectors.toList());
+        int[] copied = new int[1];
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relative = source.relativize(file);
+                if (matchers.stream().anyMatch(m -> m.matches(relative))) {
+                    Path copy = target.resolve(relative);
+                    Files.createDirectories(copy.getParent());
+                    Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES);
+                    copied[0]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Files.delete(home);
+        if (Files.isDirectory(target)) {
+            Files.move(target, home);
+        }
+        FileUtils.deleteDirectory(source.toFile());
+        log.info("Copied " + copied[0] + " files of launch " + launchId + " back from " + source + " to " + home);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Sends the warm-up requests of a launch, so that the hot code paths are compiled before the integration tests
+ * measure them.
+ */
+class Warmer {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final String launchId;
+    private final Warmup warmup;
+    private final Log log;
+    private final List<HttpRequest> requests = new ArrayList<>();
+    private final HttpClient client;
+    private final AtomicLong failures = new AtomicLong();
+
+    Warmer(String launchId, Warmup warmup, Log log) {
+        this.launchId = launchId;
+        this.warmup = warmup;
+        this.log = log;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(REQUEST_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        for (String request : warmup.getRequests()) {
+            HttpRequest.Builder builder = parseRequest(launchId, request);
+            if (warmup.getUsername() != null) {
+                String credentials =
+                        warmup.getUsername() + ":" + (warmup.getPassword() != null ? warmup.getPassword() : "");
+                builder.header(
+                        "Authorization",
+                        "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+            }
+            requests.add(builder.build());
+        }
+    }
+
+    /**
+     * Parses a request of the form {@code [METHOD] URL}.
+     */
+    static HttpRequest.Builder parseRequest(String launchId, String request) {
+        String[] parts = request.trim().split("\\s+");
+        if (parts.length == 0 || parts.length > 2 || parts[0].isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': warmup request '" + request + "' is not '[METHOD] URL'");
+        }
+        String method = parts.length == 2 ? parts[0].toUpperCase() : "GET";
+        try {
+            return HttpRequest.newBuilder(URI.create(parts[parts.length - 1]))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .timeout(REQUEST_TIMEOUT);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': warmup request '" + request + "' is invalid: " + e.getMessage(),
+                    e);
+        }
+    }
+
+    /**
+     * @return whether the latency changed by at most the tolerance between two rounds
+     */
+    static boolean isStable(double previousMedian, double currentMedian, double tolerance) {
+        if (previousMedian <= 0) {
+            return currentMedian <= 0;
+        }
+        return Math.abs(currentMedian - previousMedian) / previousMedian <= tolerance;
+    }
+
+    static double median(List<Long> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2.0;
+    }
+
+    /**
+     * Sends the requests in rounds, in each of which every client sends all requests once. Rounds without any
+     * successful request, e.g. because the launch does not serve requests yet, are retried and not counted, and the
+     * configured duration only starts with the first successful round.
+     *
+     * @return whether any request succeeded within {@link Warmup#getMaxDurationSeconds()}
+     * @throws InterruptedException if interrupted while sending requests
+     */
+    boolean run() throws InterruptedException {
+        log.info("Warming up launch " + launchId + " with " + requests.size() + " requests and "
+                + warmup.getConcurrency() + " clients");
+        long start = System.nanoTime();
+        long end = Long.MAX_VALUE;
+        long maxEnd = start + TimeUnit.SECONDS.toNanos(warmup.getMaxDurationSeconds());
+        ExecutorService executor = Executors.newFixedThreadPool(warmup.getConcurrency(), r -> {
+            Thread thread = new Thread(r, "launch-warmup-" + launchId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            int rounds = 0;
+            double first = -1;
+            double previous = -1;
+            double current = -1;
+            boolean stable = false;
+            while (true) {
+                boolean configuredDone = rounds > 0
+                        && (warmup.getDurationSeconds() > 0
+                                ? System.nanoTime() - end >= 0
+                                : rounds >= warmup.getIterations());
+                if (configuredDone) {
+                    if (warmup.getStabilizationTolerance() <= 0) {
+                        break;
+                    }
+                    stable = previous >= 0 && isStable(previous, current, warmup.getStabilizationTolerance());
+                    if (stable || System.nanoTime() - maxEnd >= 0) {
+                        break;
+                    }
+                }
+                List<Long> latencies = round(executor);
+                if (latencies.isEmpty()) {
+                    long remaining = maxEnd - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Thread.sleep(Math.min(RETRY_DELAY_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+                    continue;
+                }
+                previous = current;
+                current = median(latencies);
+                if (first < 0) {
+                    first = current;
+                    if (warmup.getDurationSeconds() > 0) {
+                        end = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup.getDurationSeconds());
+                    }
+                }
+                rounds++;
+            }
+            if (rounds == 0) {
+                log.warn("Launch " + launchId + " did not answer any warm-up request successfully within "
+                        + warmup.getMaxDurationSeconds() + " seconds, " + failures.get() + " requests failed");
+                return false;
+            }
+            if (warmup.getStabilizationTolerance() > 0 && !stable) {
+                log.warn("Latency of launch " + launchId + " did not stabilize within " + warmup.getMaxDurationSeconds()
+                        + " seconds of warm-up");
+            }
+            log.info(String.format(
+                    "Warmed up launch %s in %d rounds and %d seconds, median latency %.1f ms at first and %.1f ms at last"
+                            + ", %d failed requests",
+                    launchId,
+                    rounds,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                    first / 1_000_000.0,
+                    current / 1_000_000.0,
+                    failures.get()));
+            return true;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the latencies of all successful requests of the round, in nanoseconds
+     */
+    private List<Long> round(ExecutorService executor) throws InterruptedException {
+        List<Future<List<Long>>> clients = new ArrayList<>();
+        for (int i = 0; i < warmup.getConcurrency(); i++) {
+            clients.add(executor.submit(this::sendAll));
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> client : clients) {
+            try {
+                latencies.addAll(client.get());
+            } catch (ExecutionException e) {
+                log.debug("Warm-up client of launch " + launchId + " failed", e.getCause());
+            }
+        }
+        return latencies;
+    }
+
+    private List<Long> sendAll() throws InterruptedException {
+        List<Long> latencies = new ArrayList<>();
+        for (HttpRequest request : requests) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    failures.incrementAndGet();
+                    log.debug("Warm-up request " + request.method() + " " + request.uri() + " returned "
+                            + response.statusCode());
+                } else {
+                    latencies.add(System.nanoTime() - start);
+                }
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                log.debug("Warm-up request " + request.method() + " " + request.uri() + " failed: " + e.getMessage());
+            }
+        }
+        return latencies;
+    }
+}
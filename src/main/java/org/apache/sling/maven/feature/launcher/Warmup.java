@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for warming up the JIT compiler of a launch with HTTP requests before the integration tests run against
+ * it.
+ */
+public class Warmup {
+
+    private List<String> requests = new ArrayList<>();
+    private int iterations = 100;
+    private int durationSeconds = 0;
+    private int concurrency = 1;
+    private double stabilizationTolerance = 0;
+    private int maxDurationSeconds = 300;
+    private boolean failOnError;
+    private String username;
+    private String password;
+
+    /**
+     * @return the requests to send, each either an URL or a method followed by an URL, e.g.
+     *         {@code POST http://localhost:8080/bin/search}
+     */
+    public List<String> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<String> requests) {
+        this.requests = requests;
+    }
+
+    /**
+     * @return how often each client sends all requests, unless a duration is set
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return how long the requests are sent, {@code 0} to send a fixed number of iterations instead
+     */
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * @return the number of clients sending requests in parallel
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Returns the relative difference of the median latency of two consecutive rounds of requests, below which the
+     * latency is considered stable. The warm-up continues after the configured iterations or duration until the
+     * latency is stable, but at most for {@link #getMaxDurationSeconds()}.
+     *
+     * @return the tolerance, e.g. {@code 0.05} for 5%, {@code 0} to not wait for a stable latency
+     */
+    public double getStabilizationTolerance() {
+        return stabilizationTolerance;
+    }
+
+    public void setStabilizationTolerance(double stabilizationTolerance) {
+        this.stabilizationTolerance = stabilizationTolerance;
+    }
+
+    public int getMaxDurationSeconds() {
+        return maxDurationSeconds;
+    }
+
+    public void setMaxDurationSeconds(int maxDurationSeconds) {
+        this.maxDurationSeconds = maxDurationSeconds;
+    }
+
+    /**
+     * @return whether to fail the start of the launch if no warm-up request succeeded within
+     *     {@link #getMaxDurationSeconds()}, instead of continuing with a warning
+     */
+    public boolean isFailOnError() {
+        return failOnError;
+    }
+
+    public void setFailOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * @return the user to authenticate the requests with using basic authentication, if any
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    void validate(String launchId) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId + "': warmup has no requests");
+        }
+        if (iterations < 0 || durationSeconds < 0 || maxDurationSeconds < 0 || stabilizationTolerance < 0) {
+            throw new IllegalArgumentException("Invalid launch '" + launchId
+                    + "': warmup iterations, durations and stabilizationTolerance must not be negative");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid launch '" + launchId + "': warmup concurrency must be positive");
+        }
+        for (String request : requests) {
+            Warmer.parseRequest(launchId, request);
+        }
+    }
+}
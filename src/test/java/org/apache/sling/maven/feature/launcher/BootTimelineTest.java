@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BootTimelineTest {
+
+    private static final long MS = 1_000_000L;
+
+    private BootTimeline timeline;
+
+    @Before
+    public void setUp() {
+        timeline = new BootTimeline(new BootProfile(), 0);
+        timeline.accept("[main] DEBUG Installing bundle org.apache.felix.scr", 100 * MS);
+        timeline.accept("[main] DEBUG Installing bundle org.apache.sling.api", 110 * MS);
+        timeline.accept("some unrelated output", 115 * MS);
+        timeline.accept("[main] DEBUG Starting bundle org.apache.felix.scr", 150 * MS);
+        timeline.accept("[main] DEBUG Started bundle org.apache.felix.scr", 250 * MS);
+        timeline.accept("[main] DEBUG Starting bundle org.apache.sling.api", 260 * MS);
+        timeline.ready(300 * MS);
+    }
+
+    @Test
+    public void installDurations() {
+        Map<String, Long> durations = timeline.getInstallDurations();
+        assertEquals(
+                Arrays.asList("org.apache.felix.scr", "org.apache.sling.api"),
+                Arrays.asList(durations.keySet().toArray()));
+        assertEquals(10 * MS, (long) durations.get("org.apache.felix.scr"));
+        assertEquals(40 * MS, (long) durations.get("org.apache.sling.api"));
+    }
+
+    @Test
+    public void activationDurations() {
+        Map<String, Long> durations = timeline.getActivationDurations();
+        assertEquals(100 * MS, (long) durations.get("org.apache.felix.scr"));
+        assertEquals(40 * MS, (long) durations.get("org.apache.sling.api"));
+    }
+
+    @Test
+    public void phases() {
+        Map<String, Long> phases = timeline.getPhases();
+        assertEquals(100 * MS, (long) phases.get("launcher and framework setup"));
+        assertEquals(50 * MS, (long) phases.get("installing bundles"));
+        assertEquals(150 * MS, (long) phases.get("activating bundles"));
+        assertEquals(0L, (long) phases.get("until framework started"));
+    }
+}
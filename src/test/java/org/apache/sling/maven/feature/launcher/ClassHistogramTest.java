@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClassHistogramTest {
+
+    private static final String START = String.join(
+            "\n",
+            "12345:",
+            " num     #instances         #bytes  class name (module)",
+            "-------------------------------------------------------",
+            "   1:          1000          64000  [B (java.base@11.0.2)",
+            "   2:           500          12000  java.lang.String (java.base@11.0.2)",
+            "   3:            10            240  com.example.Cache",
+            "Total          1510          76240");
+
+    private static final String END = String.join(
+            "\n",
+            "   1:          1000          64000  [B (java.base@11.0.2)",
+            "   2:          5000         120000  com.example.Cache",
+            "   3:           400           9600  java.lang.String (java.base@11.0.2)");
+
+    @Test
+    public void parse() {
+        ClassHistogram histogram = ClassHistogram.parse(START);
+        assertEquals(500, histogram.getInstances("java.lang.String"));
+        assertEquals(12000, histogram.getBytes("java.lang.String"));
+        assertEquals(0, histogram.getBytes("java.lang.Object"));
+    }
+
+    @Test
+    public void topGrowth() {
+        assertEquals(
+                Arrays.asList("com.example.Cache: +4990 instances, +116 KiB"),
+                ClassHistogram.parse(END).topGrowth(ClassHistogram.parse(START), 5));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureArtifactsTest {
+
+    private static final String FEATURE = "{\n"
+            + "  // the feature of the launch\n"
+            + "  \"id\": \"org.example:app:slingosgifeature:1.0\",\n"
+            + "  \"variables\": { \"scr.version\": \"2.2.0\" },\n"
+            + "  \"execution-environment\": {\n"
+            + "    \"framework\": { \"id\": \"org.apache.felix:org.apache.felix.framework:7.0.5\" }\n"
+            + "  },\n"
+            + "  \"bundles\": [\n"
+            + "    \"org.apache.felix:org.apache.felix.scr:${scr.version}\",\n"
+            + "    { \"id\": \"org.example:core:1.0\", \"start-order\": 20 }\n"
+            + "  ],\n"
+            + "  /* configurations are not artifacts, even if they look like some */\n"
+            + "  \"configurations\": { \"org.example.Config\": { \"time\": \"10:00:00\" } },\n"
+            + "  \"repoinit:TEXT|false\": [ \"create path /content/a:b:c\" ],\n"
+            + "  \"content-packages:ARTIFACTS|true\": [ \"org.example:content:zip:1.0\" ]\n"
+            + "}";
+
+    @Test
+    public void collect() {
+        Set<String> ids = FeatureArtifacts.collect(FEATURE, Collections.emptyMap());
+        assertEquals(
+                Arrays.asList(
+                        "org.apache.felix:org.apache.felix.framework:7.0.5",
+                        "org.apache.felix:org.apache.felix.scr:2.2.0",
+                        "org.example:core:1.0",
+                        "org.example:content:zip:1.0"),
+                Arrays.asList(ids.toArray()));
+    }
+
+    @Test
+    public void launcherVariablesOverrideFeatureVariables() {
+        Set<String> ids = FeatureArtifacts.collect(FEATURE, Collections.singletonMap("scr.version", "2.2.6"));
+        assertTrue(ids.contains("org.apache.felix:org.apache.felix.scr:2.2.6"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidJson() {
+        FeatureArtifacts.collect("{ \"bundles\": [ ", Collections.emptyMap());
+    }
+
+    @Test
+    public void repositoryPath() {
+        Artifact content = FeatureArtifacts.toArtifact("org.example:content:zip:author:1.0-SNAPSHOT");
+        assertEquals(
+                "org/example/content/1.0-SNAPSHOT/content-1.0-SNAPSHOT-author.zip",
+                FeatureArtifacts.repositoryPath(content));
+        assertEquals(
+                "org/example/core/1.0/core-1.0.jar",
+                FeatureArtifacts.repositoryPath(FeatureArtifacts.toArtifact("org.example:core:1.0")));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FeaturePreflightTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, File> artifacts = new HashMap<>();
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private FeaturePreflight preflight;
+
+    @Before
+    public void setUp() throws IOException {
+        bundle("api", "org.example.api", "Export-Package", "org.example.api;version=\"1.2.0\"");
+        bundle(
+                "impl",
+                "org.example.impl",
+                "Import-Package",
+                "org.example.api;version=\"[1.0,2)\",org.osgi.framework;version=\"[1.8,2)\",javax.xml.parsers,"
+                        + "org.example.missing;resolution:=optional");
+        preflight = new FeaturePreflight(
+                artifact -> {
+                    resolutions.incrementAndGet();
+                    File file = artifacts.get(artifact.getArtifactId());
+                    if (file == null) {
+                        throw new IOException("Could not find " + artifact);
+                    }
+                    return file;
+                },
+                System.getProperty("java.home"),
+                new File(folder.getRoot(), "cache"),
+                2,
+                new SystemStreamLog());
+    }
+
+    @Test
+    public void passesAndIsRemembered() throws Exception {
+        List<File> feature = feature("org.example:api:1.0", "org.example:impl:1.0");
+        assertEquals(Collections.emptyList(), check(feature));
+        assertEquals(2, resolutions.get());
+        assertEquals(Collections.emptyList(), check(feature));
+        assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    public void unsatisfiedImport() throws Exception {
+        List<String> problems = check(feature("org.example:impl:1.0"));
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).contains("imports package org.example.api [1.0,2), which no"));
+    }
+
+    @Test
+    public void importOutsideOfExportedVersions() throws Exception {
+        bundle("impl", "org.example.impl", "Import-Package", "org.example.api;version=\"[2.0,3)\"");
+        List<String> problems = check(feature("org.example:api:1.0", "org.example:impl:1.0"));
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).contains("only exported in version 1.2.0"));
+    }
+
+    @Test
+    public void extraSystemPackages() throws Exception {
+        bundle("impl", "org.example.impl", "Import-Package", "org.example.host");
+        List<File> feature = feature("org.example:impl:1.0");
+        assertEquals(1, check(feature).size());
+        assertEquals(
+                Collections.emptyList(),
+                preflight.check(
+                        feature,
+                        Collections.emptyMap(),
+                        Collections.singletonMap(
+                                "org.osgi.framework.system.packages.extra", "org.example.host;version=1")));
+    }
+
+    @Test
+    public void frameworkPackages() throws Exception {
+        bundle(
+                "scr",
+                "org.apache.felix.scr",
+                "Import-Package",
+                "org.osgi.dto;version=\"[1.0,2)\",org.osgi.framework.dto,org.osgi.util.tracker,javax.xml.parsers");
+        assertEquals(Collections.emptyList(), check(feature("org.example:scr:1.0")));
+    }
+
+    @Test
+    public void jdkPackagesAreNotSystemPackages() throws Exception {
+        Set<String> packages = FeaturePreflight.systemPackages(System.getProperty("java.home"), null);
+        assertTrue(packages.contains("javax.xml.parsers"));
+        assertTrue(packages.contains("org.w3c.dom"));
+        assertFalse(packages.contains("com.sun.net.httpserver"));
+        assertFalse(packages.contains("jdk.jfr"));
+
+        bundle("server", "org.example.server", "Import-Package", "com.sun.net.httpserver");
+        List<String> problems = check(feature("org.example:server:1.0"));
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).contains("com.sun.net.httpserver"));
+    }
+
+    @Test
+    public void duplicateSymbolicNames() throws Exception {
+        bundle("api2", "org.example.api", "Export-Package", "org.example.api;version=\"1.3.0\"");
+        List<String> problems = check(feature("org.example:api:1.0", "org.example:api2:1.0"));
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).contains("same symbolic name org.example.api"));
+    }
+
+    @Test
+    public void unavailableArtifact() throws Exception {
+        List<String> problems = check(feature("org.example:api:1.0", "org.example:gone:1.0"));
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).startsWith("Artifact org.example:gone:1.0 is not available"));
+        assertFalse(new File(folder.getRoot(), "cache").exists());
+    }
+
+    @Test
+    public void versionRanges() {
+        assertTrue(BundleManifest.inRange("1.2.0", "[1.0,2)"));
+        assertFalse(BundleManifest.inRange("2.0.0", "[1.0,2)"));
+        assertTrue(BundleManifest.inRange("2.0.0", "[1.0,2.0]"));
+        assertFalse(BundleManifest.inRange("1.0.0", "(1.0,2)"));
+        assertTrue(BundleManifest.inRange("1.5", "1.2"));
+        assertFalse(BundleManifest.inRange("1.0.0", "1.0.0.RC1"));
+    }
+
+    private List<String> check(List<File> feature) throws Exception {
+        return preflight.check(feature, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    private List<File> feature(String... bundles) throws IOException {
+        StringBuilder json =
+                new StringBuilder("{ \"id\": \"org.example:feature:slingosgifeature:1.0\", \"bundles\": [");
+        for (int i = 0; i < bundles.length; i++) {
+            json.append(i > 0 ? ", " : "").append('"').append(bundles[i]).append('"');
+        }
+        json.append("] }");
+        File file = folder.newFile();
+        Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        return Collections.singletonList(file);
+    }
+
+    private void bundle(String artifactId, String symbolicName, String header, String value) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-SymbolicName", symbolicName);
+        manifest.getMainAttributes().putValue("Bundle-Version", "1.0.0");
+        manifest.getMainAttributes().putValue(header, value);
+        File jar = new File(folder.getRoot(), artifactId + ".jar");
+        try (OutputStream out = Files.newOutputStream(jar.toPath())) {
+            // only the manifest is needed
+            new JarOutputStream(out, manifest).close();
+        }
+        artifacts.put(artifactId, jar);
+    }
+}
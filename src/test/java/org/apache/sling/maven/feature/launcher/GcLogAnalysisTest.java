@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GcLogAnalysisTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<String> G1 = Arrays.asList(
+            "[0.010s][info][gc,init] Heap Region Size: 1M",
+            "[0.012s][info][gc     ] Using G1",
+            "[1.000s][info][gc,heap] GC(0) Old regions: 0->2",
+            "[1.000s][info][gc     ] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 24M->4M(256M) 10.000ms",
+            "[2.000s][info][gc,heap] GC(1) Old regions: 2->4",
+            "[2.000s][info][gc     ] GC(1) Pause Young (Normal) (G1 Evacuation Pause) 44M->6M(256M) 20.000ms",
+            "[3.000s][info][gc     ] GC(2) Pause Remark 30M->30M(256M) 1.000ms",
+            "[4.000s][info][gc     ] GC(3) Pause Young (Normal) (G1 Evacuation Pause) 66M->8M(256M) 9.000ms",
+            "[10.000s][info][gc,heap,exit] Heap");
+
+    @Test
+    public void pausePercentiles() {
+        GcLogAnalysis analysis = GcLogAnalysis.parse(G1);
+        assertEquals(4, analysis.getPauseCount());
+        assertEquals(9.0, analysis.getPausePercentile(50), 0.001);
+        assertEquals(20.0, analysis.getPausePercentile(99), 0.001);
+        assertEquals(20.0, analysis.getPausePercentile(100), 0.001);
+    }
+
+    @Test
+    public void overhead() {
+        // 40ms of pauses within 10s
+        assertEquals(0.4, GcLogAnalysis.parse(G1).getOverheadPercent(), 0.001);
+    }
+
+    @Test
+    public void allocationAndPromotionRate() {
+        GcLogAnalysis analysis = GcLogAnalysis.parse(G1);
+        // (44 - 4) + (30 - 6) + (66 - 30) MiB between 1s and 4s
+        assertEquals(100.0 / 3, analysis.getAllocationRate().get(), 0.001);
+        // 4 regions of 1 MiB within 10s
+        assertEquals(0.4, analysis.getPromotionRate().get(), 0.001);
+    }
+
+    @Test
+    public void parallelOldGenAcrossRotatedFiles() {
+        GcLogAnalysis analysis = GcLogAnalysis.parse(Arrays.asList(
+                "[2.000s][info][gc,heap] GC(1) PSOldGen: 1024K->3072K(10240K)",
+                "[2.000s][info][gc     ] GC(1) Pause Young (Allocation Failure) 20M->5M(50M) 4.000ms",
+                "[1.000s][info][gc,heap] GC(0) PSOldGen: 0K->1024K(10240K)",
+                "[1.000s][info][gc     ] GC(0) Pause Young (Allocation Failure) 10M->2M(50M) 2.000ms"));
+        assertEquals(4.0, analysis.getPausePercentile(100), 0.001);
+        assertEquals(18.0, analysis.getAllocationRate().get(), 0.001);
+        assertEquals(1.5, analysis.getPromotionRate().get(), 0.001);
+    }
+
+    @Test
+    public void thresholds() {
+        GcLogAnalysis analysis = GcLogAnalysis.parse(G1);
+        GcLog settings = new GcLog();
+        assertTrue(analysis.checkThresholds("test", settings).isEmpty());
+        settings.setMaxPauseP99Millis(15);
+        settings.setMaxOverheadPercent(0.5);
+        assertEquals(1, analysis.checkThresholds("test", settings).size());
+        settings.setMaxOverheadPercent(0.1);
+        assertEquals(2, analysis.checkThresholds("test", settings).size());
+    }
+
+    @Test
+    public void vmOption() {
+        File target = new File("/tmp/build dir:1/target");
+        String option = GcLogAnalysis.vmOption(
+                new File(target, "feature-launcher/test-gc-%p.log"), new File(target, "launchers"), new GcLog());
+        assertEquals(
+                "-Xlog:gc*:file=" + new File("../feature-launcher/test-gc-%p.log").getPath()
+                        + ":uptime,level,tags:filecount=5,filesize=20m",
+                option);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void vmOptionRejectsSpacesInRelativePath() {
+        File target = new File("/tmp/target");
+        GcLogAnalysis.vmOption(
+                new File(target, "feature launcher/test-gc-%p.log"), new File(target, "launchers"), new GcLog());
+    }
+
+    @Test
+    public void noPauses() {
+        GcLogAnalysis analysis = GcLogAnalysis.parse(Arrays.asList("[0.010s][info][gc] Using G1"));
+        assertEquals(0, analysis.getPausePercentile(99), 0.001);
+        assertFalse(analysis.getAllocationRate().isPresent());
+        assertFalse(analysis.getPromotionRate().isPresent());
+    }
+
+    @Test
+    public void combinesJvms() {
+        GcLogAnalysis second = GcLogAnalysis.parse(Arrays.asList(
+                "[1.000s][info][gc     ] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 10M->2M(256M) 40.000ms",
+                "[2.000s][info][gc     ] GC(1) Pause Young (Normal) (G1 Evacuation Pause) 12M->2M(256M) 40.000ms",
+                "[10.000s][info][gc,heap,exit] Heap"));
+        GcLogAnalysis combined = GcLogAnalysis.combine(Arrays.asList(GcLogAnalysis.parse(G1), second));
+        assertEquals(6, combined.getPauseCount());
+        // 120ms of pauses within the 20s both JVMs ran
+        assertEquals(0.6, combined.getOverheadPercent(), 0.001);
+        // 100 MiB within 3s and 10 MiB within 1s
+        assertEquals(110.0 / 4, combined.getAllocationRate().get(), 0.001);
+        // only the first JVM logged its old generation
+        assertEquals(4.0 / 20, combined.getPromotionRate().get(), 0.001);
+    }
+
+    @Test
+    public void filesByJvm() throws Exception {
+        File log = new File(folder.getRoot(), "test" + GcLogAnalysis.FILE_SUFFIX);
+        for (String name : new String[] {"test-gc-12.log", "test-gc-12.log.0", "test-gc-345.log", "other-gc-12.log"}) {
+            assertTrue(new File(folder.getRoot(), name).createNewFile());
+        }
+        Map<String, List<Path>> files = GcLogAnalysis.files(log);
+        assertEquals(Arrays.asList("12", "345"), new ArrayList<>(files.keySet()));
+        assertEquals(2, files.get("12").size());
+        assertEquals(1, files.get("345").size());
+    }
+}
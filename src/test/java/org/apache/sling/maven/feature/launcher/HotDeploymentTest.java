@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HotDeploymentTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HotDeployment deployment;
+    private Artifact bundle;
+    private Artifact other;
+    private Artifact feature;
+
+    @Before
+    public void setUp() throws IOException {
+        Launch launch = new Launch();
+        launch.setId("model");
+        deployment = new HotDeployment(launch, tmp.newFolder("target"));
+        bundle = artifact("bundle", "jar", "1");
+        other = artifact("other", "jar", "1");
+        feature = artifact("feature", "slingosgifeature", "{}");
+    }
+
+    private Artifact artifact(String artifactId, String extension, String content) throws IOException {
+        Artifact artifact = new DefaultArtifact(
+                "org.example", artifactId, "1.0", "compile", extension, null, new DefaultArtifactHandler(extension));
+        File file = new File(tmp.getRoot(), artifactId + "." + extension);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    private static void change(Artifact artifact, String content) throws IOException {
+        Files.write(artifact.getFile().toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] deployedFiles() {
+        String[] names = deployment.getDeployDirectory().list();
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Test
+    public void resetEmptiesTheDeployDirectory() throws IOException {
+        List<Artifact> artifacts = Arrays.asList(bundle, other);
+        deployment.reset(artifacts);
+        change(bundle, "2");
+        assertEquals(Collections.singletonList(bundle), deployment.deployChanged(artifacts));
+        File stale = new File(deployment.getDeployDirectory(), "stale.jar");
+        Files.write(stale.toPath(), new byte[0]);
+
+        deployment.reset(artifacts);
+
+        assertTrue(deployment.getDeployDirectory().isDirectory());
+        assertArrayEquals(new String[0], deployedFiles());
+        // the bundles the launch was started with are not deployed again
+        assertEquals(Collections.emptyList(), deployment.deployChanged(artifacts));
+    }
+
+    @Test
+    public void deploysChangedBundlesOnly() throws IOException {
+        List<Artifact> artifacts = Arrays.asList(bundle, other, feature);
+        deployment.reset(artifacts);
+        assertEquals(Collections.emptyList(), deployment.deployChanged(artifacts));
+        assertArrayEquals(new String[0], deployedFiles());
+
+        change(bundle, "2");
+        change(feature, "{\"id\":\"changed\"}");
+        assertEquals(Collections.singletonList(bundle), deployment.deployChanged(artifacts));
+        assertArrayEquals(new String[] {"bundle-1.0.jar"}, deployedFiles());
+        File deployed = new File(deployment.getDeployDirectory(), "bundle-1.0.jar");
+        assertEquals("2", new String(Files.readAllBytes(deployed.toPath()), StandardCharsets.UTF_8));
+
+        // unchanged bundles, including the one deployed before, are left alone
+        long modified = deployed.lastModified();
+        assertEquals(Collections.emptyList(), deployment.deployChanged(artifacts));
+        assertEquals(modified, deployed.lastModified());
+
+        change(bundle, "3");
+        change(other, "2");
+        assertEquals(Arrays.asList(bundle, other), deployment.deployChanged(artifacts));
+        assertArrayEquals(new String[] {"bundle-1.0.jar", "other-1.0.jar"}, deployedFiles());
+        assertEquals("3", new String(Files.readAllBytes(deployed.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void redeploysBundlesChangedBackAfterADeployment() throws IOException {
+        List<Artifact> artifacts = Collections.singletonList(bundle);
+        deployment.reset(artifacts);
+        change(bundle, "2");
+        deployment.deployChanged(artifacts);
+        change(bundle, "1");
+        assertEquals(artifacts, deployment.deployChanged(artifacts));
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWithoutState() throws IOException {
+        deployment.deployChanged(Collections.singletonList(bundle));
+    }
+
+    @Test
+    public void deploysBundlesAddedToTheProject() throws IOException {
+        deployment.reset(Collections.singletonList(bundle));
+        assertEquals(Collections.singletonList(other), deployment.deployChanged(Arrays.asList(bundle, other)));
+        assertArrayEquals(new String[] {"other-1.0.jar"}, deployedFiles());
+
+        // removing it from the project again leaves it deployed until the next reset
+        assertEquals(Collections.emptyList(), deployment.deployChanged(Collections.singletonList(bundle)));
+        assertArrayEquals(new String[] {"other-1.0.jar"}, deployedFiles());
+        deployment.reset(Collections.singletonList(bundle));
+        assertArrayEquals(new String[0], deployedFiles());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JvmTelemetryTest {
+
+    /** Stands in for a launched JVM. */
+    public static class Idle {
+        public static void main(String[] args) throws InterruptedException {
+            System.out.println("ready");
+            System.out.flush();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        }
+    }
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Process first;
+    private Process second;
+
+    @After
+    public void tearDown() {
+        for (Process process : new Process[] {first, second}) {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static Process startJvm() throws IOException {
+        Process process = new ProcessBuilder(
+                        Paths.get(System.getProperty("java.home"), "bin", "java")
+                                .toString(),
+                        "-cp",
+                        System.getProperty("java.class.path"),
+                        Idle.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        // attaching before the JVM is up would kill it with the signal the attach API sends
+        BufferedReader reader =
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("ready", reader.readLine());
+        return process;
+    }
+
+    private static List<String> awaitSamples(File csv, String jvm) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+            if (lines.stream().skip(1).anyMatch(line -> line.endsWith("," + jvm))) {
+                return lines;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("No samples of JVM " + jvm + " written to " + csv);
+    }
+
+    private static void assertSample(String line, String jvm) {
+        String[] values = line.split(",", -1);
+        assertEquals(line, 15, values.length);
+        long heapUsed = Long.parseLong(values[1]);
+        long heapCommitted = Long.parseLong(values[2]);
+        assertTrue(line, heapUsed > 0 && heapUsed <= heapCommitted);
+        assertTrue(line, Long.parseLong(values[5]) > 0);
+        int threads = Integer.parseInt(values[6]);
+        int byState = 0;
+        for (int i = 7; i <= 10; i++) {
+            byState += Integer.parseInt(values[i]);
+        }
+        assertTrue(line, threads > 0 && byState <= threads);
+        // no OSGi framework, so no bundle states
+        assertEquals(line, "-1", values[11]);
+        assertEquals(line, "-1", values[12]);
+        assertEquals(line, "-1", values[13]);
+        assertEquals(line, jvm, values[14]);
+    }
+
+    @Test
+    public void writesSamples() throws Exception {
+        first = startJvm();
+        File csv = new File(tmp.getRoot(), "feature-launcher/model-telemetry.csv");
+        JvmTelemetry telemetry = JvmTelemetry.start("model", first.toHandle(), csv, 1, new SystemStreamLog());
+        List<String> lines;
+        try {
+            lines = awaitSamples(csv, "1");
+        } finally {
+            telemetry.stop();
+        }
+        assertTrue(lines.get(0).startsWith("time_ms,heap_used,heap_committed,"));
+        assertTrue(lines.get(0).endsWith(",jvm"));
+        lines.stream().skip(1).forEach(line -> assertSample(line, "1"));
+    }
+
+    @Test
+    public void continuesAcrossRestarts() throws Exception {
+        first = startJvm();
+        File csv = new File(tmp.getRoot(), "model-telemetry.csv");
+        JvmTelemetry telemetry = JvmTelemetry.start("model", first.toHandle(), csv, 1, new SystemStreamLog());
+        try {
+            awaitSamples(csv, "1");
+            telemetry.detach();
+            first.destroy();
+            first.waitFor(10, TimeUnit.SECONDS);
+
+            second = startJvm();
+            telemetry.attach(second.toHandle());
+            awaitSamples(csv, "2");
+        } finally {
+            telemetry.stop();
+        }
+        List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        long previous = -1;
+        for (String line : lines.subList(1, lines.size())) {
+            long time = Long.parseLong(line.substring(0, line.indexOf(',')));
+            assertTrue(line, time >= previous);
+            previous = time;
+            assertSample(line, line.substring(line.lastIndexOf(',') + 1));
+        }
+        assertEquals(
+                "2",
+                lines.get(lines.size() - 1)
+                        .substring(lines.get(lines.size() - 1).lastIndexOf(',') + 1));
+    }
+
+    @Test
+    public void stopsAfterTheJvmIsGone() throws Exception {
+        first = startJvm();
+        File csv = new File(tmp.getRoot(), "model-telemetry.csv");
+        JvmTelemetry telemetry = JvmTelemetry.start("model", first.toHandle(), csv, 1, new SystemStreamLog());
+        awaitSamples(csv, "1");
+        first.destroyForcibly();
+        first.waitFor(10, TimeUnit.SECONDS);
+        telemetry.stop();
+        List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.size() > 1);
+        lines.stream().skip(1).forEach(line -> assertSample(line, "1"));
+    }
+}
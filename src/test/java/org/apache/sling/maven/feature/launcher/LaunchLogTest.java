@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void query() throws Exception {
+        File directory = folder.newFolder("model-log");
+        try (LaunchLogStore store = LaunchLogStore.open(directory)) {
+            store.append("[main] INFO org.apache.sling.feature.launcher.impl.Main - Apache Sling Application Launcher");
+            store.append("18.10.2026 10:00:00.000 *WARN* [main] org.apache.sling.Foo missing configuration");
+            store.append("plain output");
+            store.append("[main] ERROR org.apache.sling.Bar - failed");
+        }
+
+        LaunchLog log = LaunchLog.open(directory.toPath());
+        assertEquals(4, log.size());
+
+        List<LaunchLog.Entry> warnings = log.query(0, LaunchLog.Level.WARN, null, null);
+        assertEquals(2, warnings.size());
+        assertEquals(1, warnings.get(0).getNumber());
+        assertEquals("org.apache.sling.Foo", warnings.get(0).getLogger().get());
+        assertEquals(LaunchLog.Level.ERROR, warnings.get(1).getLevel());
+
+        assertEquals(
+                1,
+                log.query(0, LaunchLog.Level.UNKNOWN, "org.apache.sling.feature", null)
+                        .size());
+        assertEquals(
+                "plain output",
+                log.query(1, LaunchLog.Level.UNKNOWN, null, Pattern.compile("^plain"))
+                        .get(0)
+                        .getText());
+        assertTrue(log.query(3, LaunchLog.Level.UNKNOWN, null, Pattern.compile("Launcher"))
+                .isEmpty());
+        assertEquals(
+                "org.apache.sling.Bar",
+                log.query(3, LaunchLog.Level.UNKNOWN, null, null)
+                        .get(0)
+                        .getLogger()
+                        .get());
+    }
+
+    @Test
+    public void awaitAppendedLine() throws Exception {
+        File directory = folder.newFolder("model-log");
+        try (LaunchLogStore store = LaunchLogStore.open(directory)) {
+            store.append("Framework started");
+        }
+        LaunchLog log = LaunchLog.open(directory.toPath());
+        long from = log.size();
+
+        Thread writer = new Thread(() -> {
+            try (LaunchLogStore store = LaunchLogStore.open(directory)) {
+                Thread.sleep(200);
+                store.append("Service registered");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        Optional<LaunchLog.Entry> entry = log.await(from, Pattern.compile("registered"), 10, TimeUnit.SECONDS);
+        writer.join();
+
+        assertEquals(1, entry.get().getNumber());
+        assertFalse(log.await(from, Pattern.compile("Framework"), 0, TimeUnit.SECONDS)
+                .isPresent());
+    }
+
+    @Test
+    public void queryAcrossBulkReads() throws Exception {
+        File directory = folder.newFolder("model-log");
+        try (LaunchLogStore store = LaunchLogStore.open(directory)) {
+            for (int i = 0; i < 10_000; i++) {
+                store.append("[main] INFO org.example.Line - line " + i);
+            }
+        }
+        LaunchLog log = LaunchLog.open(directory.toPath());
+        List<LaunchLog.Entry> entries = log.query(4095, LaunchLog.Level.UNKNOWN, null, null);
+        assertEquals(10_000 - 4095, entries.size());
+        assertEquals("[main] INFO org.example.Line - line 4095", entries.get(0).getText());
+        assertEquals(9999, entries.get(entries.size() - 1).getNumber());
+        assertEquals(
+                "[main] INFO org.example.Line - line 8192",
+                log.query(0, LaunchLog.Level.UNKNOWN, null, Pattern.compile("line 8192$"))
+                        .get(0)
+                        .getText());
+    }
+
+    @Test
+    public void restartWaitsForPreviousWriter() throws Exception {
+        File directory = folder.newFolder("model-log");
+        LaunchLogStore previous = LaunchLogStore.open(directory);
+        previous.append("first process");
+
+        Thread closer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                previous.append("last output of the first process");
+                previous.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        closer.start();
+        try (LaunchLogStore store = LaunchLogStore.open(directory)) {
+            store.append("second process");
+        }
+        closer.join();
+        // appending to a store which was taken over is ignored
+        previous.append("too late");
+
+        List<LaunchLog.Entry> entries =
+                LaunchLog.open(directory.toPath()).query(0, LaunchLog.Level.UNKNOWN, null, null);
+        assertEquals(3, entries.size());
+        assertEquals("last output of the first process", entries.get(1).getText());
+        assertEquals("second process", entries.get(2).getText());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class LaunchPortsTest {
+
+    @Test
+    public void portsFromFrameworkProperties() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("org.osgi.service.http.port", "8080");
+        properties.put("org.osgi.service.http.port.secure", "8443");
+        properties.put("org.osgi.service.http.port.placeholder", "${port}");
+        properties.put("sling.run.modes", "author");
+        properties.put("support.ports", "9000");
+        Launch launch = new Launch();
+        launch.getLauncherArguments().setFrameworkProperties(properties);
+
+        assertEquals(new TreeSet<>(Arrays.asList(8080, 8443)), LaunchPorts.of(launch));
+    }
+
+    @Test
+    public void portInUse() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            assertFalse(LaunchPorts.isFree(socket.getLocalPort()));
+        }
+    }
+
+    @Test
+    public void qualifiedIdsDifferPerOutputDirectory() {
+        Launch launch = new Launch();
+        launch.setId("model");
+        assertEquals(
+                launch.getQualifiedId(new File("module-a/target")), launch.getQualifiedId(new File("module-a/target")));
+        assertNotEquals(
+                launch.getQualifiedId(new File("module-a/target")), launch.getQualifiedId(new File("module-b/target")));
+    }
+}
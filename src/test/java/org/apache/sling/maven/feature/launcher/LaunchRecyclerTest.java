@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LaunchRecyclerTest {
+
+    private static final long MIB = 1024L * 1024L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clearProperty() {
+        System.clearProperty(LaunchRecycling.DIRECTORY_PROPERTY);
+    }
+
+    @Test
+    public void reasons() {
+        Recycling policy = new Recycling();
+        policy.setAfterTestClasses(10);
+        policy.setMaxUptimeMinutes(30);
+        policy.setMaxHeapAfterGcMb(512);
+
+        assertFalse(LaunchRecycler.reason(policy, 9, TimeUnit.MINUTES.toMillis(29), 512 * MIB)
+                .isPresent());
+        assertEquals(
+                "10 test classes ran", LaunchRecycler.reason(policy, 10, 0, 0).get());
+        assertEquals(
+                "it ran for 30 minutes",
+                LaunchRecycler.reason(policy, 1, TimeUnit.MINUTES.toMillis(30), 0)
+                        .get());
+        assertEquals(
+                "its heap usage after GC is 513 MiB",
+                LaunchRecycler.reason(policy, 1, 0, 513 * MIB).get());
+    }
+
+    @Test
+    public void unlimitedPolicyNeverRecycles() {
+        assertFalse(LaunchRecycler.reason(new Recycling(), 1000, Long.MAX_VALUE, Long.MAX_VALUE)
+                .isPresent());
+    }
+
+    @Test
+    public void returnsImmediatelyWithoutControlDirectory() throws Exception {
+        System.setProperty(LaunchRecycling.DIRECTORY_PROPERTY, folder.getRoot().getAbsolutePath());
+        LaunchRecycling.testClassFinished("model");
+    }
+
+    @Test
+    public void waitsForTheAnswer() throws Exception {
+        System.setProperty(LaunchRecycling.DIRECTORY_PROPERTY, folder.getRoot().getAbsolutePath());
+        File directory = folder.newFolder("model-control");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> testSide = executor.submit(() -> {
+                LaunchRecycling.testClassFinished("model");
+                return null;
+            });
+            List<Path> requests;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((requests = LaunchRecycler.pendingRequests(directory)).isEmpty()) {
+                assertTrue("No request was written", System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            assertEquals(1, requests.size());
+            Thread.sleep(200);
+            assertFalse(testSide.isDone());
+
+            LaunchRecycler.complete(requests.get(0));
+            testSide.get(10, TimeUnit.SECONDS);
+            assertEquals(0, directory.list().length);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failsRightAwayIfRecyclingFailed() throws Exception {
+        System.setProperty(LaunchRecycling.DIRECTORY_PROPERTY, folder.getRoot().getAbsolutePath());
+        File directory = folder.newFolder("model-control");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> testSide = executor.submit(() -> {
+                LaunchRecycling.testClassFinished("model");
+                return null;
+            });
+            List<Path> requests;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((requests = LaunchRecycler.pendingRequests(directory)).isEmpty()) {
+                assertTrue("No request was written", System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+
+            LaunchRecycler.fail(requests.get(0), "Launch model failed to start in 60 seconds.");
+            try {
+                testSide.get(10, TimeUnit.SECONDS);
+                fail("Expected the test side to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+                assertEquals(
+                        "Launch model could not be restarted for the next test class: "
+                                + "Launch model failed to start in 60 seconds.",
+                        e.getCause().getMessage());
+            }
+            assertEquals(0, directory.list().length);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.sling.maven.feature.launcher;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.apache.maven.model.Dependency;
 import org.junit.Before;
@@ -65,6 +67,58 @@ public class LaunchTest {
         launch.validate();
     }
 
+    @Test
+    public void validLaunch_withFeatures() {
+
+        FeatureReference base = new FeatureReference();
+        base.setGroupId("org.apache.sling");
+        base.setArtifactId("org.apache.sling.starter");
+        base.setVersion("12");
+        FeatureReference addOn = new FeatureReference();
+        addOn.setFile(validFeatureFile.getAbsolutePath());
+
+        Launch launch = new Launch();
+        launch.setFeatures(Arrays.asList(base, addOn));
+        launch.setId("composed");
+        launch.validate();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLaunch_featureAndFeatures() {
+
+        FeatureReference addOn = new FeatureReference();
+        addOn.setFile(validFeatureFile.getAbsolutePath());
+
+        Launch launch = new Launch();
+        launch.setFeature(validDep);
+        launch.setFeatures(Collections.singletonList(addOn));
+        launch.setId("composed");
+        launch.validate();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLaunch_featureReferenceWithoutCoordinatesOrFile() {
+
+        Launch launch = new Launch();
+        launch.setFeatures(Collections.singletonList(new FeatureReference()));
+        launch.setId("composed");
+        launch.validate();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLaunch_recyclingRestoresMissingSnapshot() {
+
+        Recycling recycling = new Recycling();
+        recycling.setAfterTestClasses(10);
+        recycling.setRestoreSnapshot(true);
+
+        Launch launch = new Launch();
+        launch.setId("feature");
+        launch.setFeature(validDep);
+        launch.setRecycling(recycling);
+        launch.validate();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void invalidLaunch_noId() {
 
@@ -112,6 +166,29 @@ public class LaunchTest {
         launch.validate();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLaunch_negativeStallTimeout() {
+
+        Launch launch = new Launch();
+        launch.setId("feature");
+        launch.setFeature(validDep);
+        launch.setStallTimeoutSeconds(-1);
+        launch.validate();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLaunch_negativeCpuQuota() {
+
+        Resources resources = new Resources();
+        resources.setCpuQuota(-1.0);
+
+        Launch launch = new Launch();
+        launch.setId("feature");
+        launch.setFeature(validDep);
+        launch.setResources(resources);
+        launch.validate();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void invalidLaunch_bothFeatureAndFeatureFile() {
 
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LinkProxyTest {
+
+    private ServerSocket echo;
+    private Thread echoThread;
+    private LinkProxy proxy;
+
+    @Before
+    public void startEchoServer() throws IOException {
+        echo = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        echoThread = new Thread(() -> {
+            try (Socket socket = echo.accept()) {
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                // closed by the test
+            }
+        });
+        echoThread.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        if (proxy != null) {
+            proxy.close();
+        }
+        echo.close();
+        echoThread.join(5000);
+    }
+
+    @Test
+    public void forwardsWithLatencyInBothDirections() throws Exception {
+        Link link = link();
+        link.setLatencyMillis(100);
+
+        byte[] reply = roundTrip(link, "hello".getBytes("UTF-8"));
+
+        assertArrayEquals("hello".getBytes("UTF-8"), reply);
+        assertEquals(1, proxy.getConnections());
+        assertEquals(5, proxy.getBytesUpstream());
+        assertEquals(5, proxy.getBytesDownstream());
+        assertTrue(proxy.report(), proxy.report().contains("1 connections, 5 bytes to publish"));
+    }
+
+    @Test
+    public void addsLatencyOnTheWayThereAndBack() throws Exception {
+        Link link = link();
+        link.setLatencyMillis(150);
+
+        long start = System.nanoTime();
+        roundTrip(link, new byte[] {1});
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("Round trip took " + elapsedMillis + " ms", elapsedMillis >= 300);
+    }
+
+    @Test
+    public void limitsBandwidth() throws Exception {
+        Link link = link();
+        // 10 000 bytes per second, so 5 000 bytes take half a second in each direction
+        link.setBandwidthKbps(80);
+        byte[] data = new byte[5000];
+        Arrays.fill(data, (byte) 7);
+
+        long start = System.nanoTime();
+        byte[] reply = roundTrip(link, data);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertArrayEquals(data, reply);
+        assertTrue("Round trip took " + elapsedMillis + " ms", elapsedMillis >= 900);
+    }
+
+    @Test
+    public void delaysDroppedData() throws Exception {
+        Link link = link();
+        link.setDropRate(0.99);
+
+        long start = System.nanoTime();
+        roundTrip(link, new byte[] {1});
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("Round trip took " + elapsedMillis + " ms", elapsedMillis >= LinkProxy.RETRANSMISSION_MILLIS);
+    }
+
+    @Test
+    public void rewritesLocalAddressesOfTheTargetPort() {
+        assertEquals(
+                "http://localhost:14503/bin/receive",
+                LinkProxy.rewrite("http://localhost:4503/bin/receive", 4503, 14503));
+        assertEquals("127.0.0.1:14503", LinkProxy.rewrite("127.0.0.1:4503", 4503, 14503));
+        assertEquals("localhost:45030", LinkProxy.rewrite("localhost:45030", 4503, 14503));
+        assertEquals("example.org:4503", LinkProxy.rewrite("example.org:4503", 4503, 14503));
+        assertEquals("4503", LinkProxy.rewrite("4503", 4503, 14503));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidDropRate() {
+        Link link = link();
+        link.setDropRate(1);
+        link.validate();
+    }
+
+    private Link link() {
+        Link link = new Link();
+        link.setFrom("author");
+        link.setTo("publish");
+        link.setPort(echo.getLocalPort());
+        return link;
+    }
+
+    private byte[] roundTrip(Link link, byte[] data) throws IOException {
+        link.validate();
+        proxy = new LinkProxy(link, new SystemStreamLog());
+        int port = proxy.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(data);
+            socket.getOutputStream().flush();
+            byte[] reply = new byte[data.length];
+            InputStream in = socket.getInputStream();
+            for (int offset = 0; offset < reply.length; ) {
+                int read = in.read(reply, offset, reply.length - offset);
+                if (read < 0) {
+                    throw new IOException("Connection closed after " + offset + " bytes");
+                }
+                offset += read;
+            }
+            return reply;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MemoryBudgetTest {
+
+    private static final long GIB = 1024L * 1024L * 1024L;
+
+    @Test
+    public void parseSize() {
+        assertEquals(1024L, MemoryBudget.parseSize("1024"));
+        assertEquals(512L * 1024L, MemoryBudget.parseSize("512k"));
+        assertEquals(512L * 1024L * 1024L, MemoryBudget.parseSize("512m"));
+        assertEquals(2 * GIB, MemoryBudget.parseSize("2G"));
+    }
+
+    @Test
+    public void heapFromXmx() {
+        assertEquals(GIB, MemoryBudget.heapBytes(Arrays.asList("-Dfoo=bar", "-Xmx1g"), 16 * GIB));
+    }
+
+    @Test
+    public void heapFromLastOption() {
+        assertEquals(GIB, MemoryBudget.heapBytes(Arrays.asList("-Xmx4g", "-XX:MaxHeapSize=1g"), 16 * GIB));
+    }
+
+    @Test
+    public void heapFromRamPercentage() {
+        assertEquals(8 * GIB, MemoryBudget.heapBytes(Arrays.asList("-XX:MaxRAMPercentage=50.0"), 16 * GIB));
+    }
+
+    @Test
+    public void heapFromJvmDefault() {
+        assertEquals(4 * GIB, MemoryBudget.heapBytes(Collections.emptyList(), 16 * GIB));
+    }
+
+    @Test
+    public void withHeap() {
+        assertEquals(
+                Arrays.asList("-Dfoo=bar", "-Xmx768m"),
+                MemoryBudget.withHeap(Arrays.asList("-Xmx2g", "-Dfoo=bar"), 768L * 1024L * 1024L));
+    }
+
+    @Test
+    public void heapFromSeveralOptionsInOneEntry() {
+        assertEquals(GIB, MemoryBudget.heapBytes(Collections.singletonList(" -Xmx1g  -Dfoo=bar"), 16 * GIB));
+        assertEquals(
+                Arrays.asList("-Dfoo=bar", "-Dbar=\"a b\"", "-Xmx768m"),
+                MemoryBudget.withHeap(Arrays.asList("-Xmx1g -Dfoo=bar", "-Dbar=\"a b\""), 768L * 1024L * 1024L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidHeapOption() {
+        MemoryBudget.heapBytes(Collections.singletonList("-XX:MaxRAMPercentage=abc"), 16 * GIB);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidHeapSize() {
+        MemoryBudget.heapBytes(Collections.singletonList("-Xmx1gb"), 16 * GIB);
+    }
+}
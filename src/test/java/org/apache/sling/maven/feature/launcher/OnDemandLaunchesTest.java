@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.shared.utils.Os;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class OnDemandLaunchesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        System.setProperty(OnDemandLaunches.DIRECTORY_PROPERTY, folder.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(OnDemandLaunches.DIRECTORY_PROPERTY);
+    }
+
+    @Test
+    public void descriptorRoundTrip() throws IOException {
+        File file = OnDemandLaunches.descriptorFile("model");
+        new LaunchDescriptor(
+                        Arrays.asList("launcher", "-f", "model.json"),
+                        folder.getRoot(),
+                        Collections.singletonMap("JAVA_OPTS", "-Xmx1g"),
+                        42)
+                .write(file);
+
+        LaunchDescriptor descriptor = LaunchDescriptor.read(file);
+        assertEquals(Arrays.asList("launcher", "-f", "model.json"), descriptor.getCommand());
+        assertEquals(42, descriptor.getStartTimeoutSeconds());
+        assertEquals("-Xmx1g", descriptor.toProcessBuilder().environment().get("JAVA_OPTS"));
+    }
+
+    @Test(expected = IOException.class)
+    public void startUnpreparedLaunch() throws Exception {
+        OnDemandLaunches.start("unprepared");
+    }
+
+    @Test
+    public void startOnce() throws Exception {
+        assumeTrue(Os.isFamily(Os.FAMILY_UNIX));
+        new LaunchDescriptor(
+                        Arrays.asList("sh", "-c", "echo 'Framework started' >&2; sleep 60"),
+                        folder.getRoot(),
+                        Collections.emptyMap(),
+                        10)
+                .write(OnDemandLaunches.descriptorFile("sleeper"));
+
+        Process process = OnDemandLaunches.start("sleeper");
+        try {
+            assertTrue(process.isAlive());
+            assertSame(process, OnDemandLaunches.start("sleeper"));
+        } finally {
+            OnDemandLaunches.stop("sleeper");
+        }
+        assertFalse(process.isAlive());
+    }
+
+    @Test
+    public void startsDifferentLaunchesInParallel() throws Exception {
+        assumeTrue(Os.isFamily(Os.FAMILY_UNIX));
+        new LaunchDescriptor(
+                        Arrays.asList("sh", "-c", "sleep 60 && echo 'Framework started' >&2"),
+                        folder.getRoot(),
+                        Collections.emptyMap(),
+                        60)
+                .write(OnDemandLaunches.descriptorFile("slow"));
+        new LaunchDescriptor(
+                        Arrays.asList("sh", "-c", "echo 'Framework started' >&2; sleep 60"),
+                        folder.getRoot(),
+                        Collections.emptyMap(),
+                        10)
+                .write(OnDemandLaunches.descriptorFile("fast"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Process> slow = executor.submit(() -> OnDemandLaunches.start("slow"));
+            Thread.sleep(500);
+            long begin = System.nanoTime();
+            Process fast = OnDemandLaunches.start("fast");
+            OnDemandLaunches.stop("fast");
+            assertFalse(fast.isAlive());
+            assertFalse(slow.isDone());
+
+            // stopping a launch which is starting ends its start right away
+            OnDemandLaunches.stop("slow");
+            try {
+                slow.get(10, TimeUnit.SECONDS);
+                fail("Expected the start of the stopped launch to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertTrue(System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(30));
+        } finally {
+            executor.shutdownNow();
+            OnDemandLaunches.stop("slow");
+            OnDemandLaunches.stop("fast");
+        }
+    }
+}
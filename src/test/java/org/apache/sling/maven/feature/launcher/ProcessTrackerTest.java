@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessTrackerTest {
+
+    private static final long MIB = 1024L * 1024L;
+
+    @Test
+    public void reservesMemoryOnlyIfItFits() {
+        ProcessTracker tracker = new ProcessTracker();
+        assertTrue(tracker.tryReserveMemory("a", 600 * MIB, 1024 * MIB));
+        assertFalse(tracker.tryReserveMemory("b", 600 * MIB, 1024 * MIB));
+        assertTrue(tracker.tryReserveMemory("b", 400 * MIB, 1024 * MIB));
+        assertEquals(1000 * MIB, tracker.getUnusedReservedMemory());
+    }
+
+    @Test
+    public void replacesTheReservationOfTheSameLaunch() {
+        ProcessTracker tracker = new ProcessTracker();
+        assertTrue(tracker.tryReserveMemory("a", 600 * MIB, 1024 * MIB));
+        assertTrue(tracker.tryReserveMemory("a", 800 * MIB, 1024 * MIB));
+        assertEquals(800 * MIB, tracker.getUnusedReservedMemory());
+        tracker.releaseMemory("a");
+        assertEquals(0, tracker.getUnusedReservedMemory());
+    }
+
+    @Test
+    public void dropsReservationsOfEndedUntrackedLaunches() throws Exception {
+        ProcessTracker tracker = new ProcessTracker();
+        assertTrue(tracker.tryReserveMemory("a", 600 * MIB, 1024 * MIB));
+        Process process = new ProcessBuilder(
+                        Paths.get(System.getProperty("java.home"), "bin", "java")
+                                .toString(),
+                        "-version")
+                .start();
+        tracker.holdMemory("a", process.toHandle());
+        process.waitFor();
+        assertEquals(0, tracker.getUnusedReservedMemory());
+        assertTrue(tracker.tryReserveMemory("b", 1000 * MIB, 1024 * MIB));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProjectArtifactsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static Artifact artifact(String classifier, String extension, File file) {
+        Artifact artifact = new DefaultArtifact(
+                "org.example",
+                "bundle",
+                "1.0",
+                "compile",
+                extension,
+                classifier,
+                new DefaultArtifactHandler(extension));
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    @Test
+    public void collectsPackagedArtifacts() throws Exception {
+        File jar = tmp.newFile("bundle-1.0.jar");
+        File feature = tmp.newFile("bundle-1.0-model.slingosgifeature");
+        MavenProject project = new MavenProject();
+        project.setArtifact(artifact(null, "jar", jar));
+        project.addAttachedArtifact(artifact("model", "slingosgifeature", feature));
+
+        assertEquals(jar, ProjectArtifacts.collect(project).get(0).getFile());
+        assertEquals(feature, ProjectArtifacts.collect(project).get(1).getFile());
+    }
+
+    @Test
+    public void skipsUnpackagedMainArtifact() throws Exception {
+        File classes = tmp.newFolder("classes");
+        Files.write(new File(classes, "Foo.class").toPath(), new byte[0]);
+        MavenProject project = new MavenProject();
+        project.setArtifact(artifact(null, "jar", classes));
+        project.addAttachedArtifact(artifact("missing", "jar", new File(tmp.getRoot(), "missing.jar")));
+
+        assertEquals(Collections.emptyList(), ProjectArtifacts.collect(project));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ResolutionCacheTest {
+
+    private static final Artifact FEATURE =
+            new DefaultArtifact("org.apache.sling:org.apache.sling.starter:slingosgifeature:oak_tar:13");
+
+    /** Resolves every artifact to a file named like it, after the latch was released. */
+    private static class CountingResolver implements ArtifactResolver {
+
+        private final AtomicInteger resolutions = new AtomicInteger();
+        private final CountDownLatch release;
+        private volatile boolean failing;
+        private volatile Error error;
+
+        CountingResolver(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public ArtifactResult resolveArtifact(RepositorySystemSession session, ArtifactRequest request)
+                throws ArtifactResolutionException {
+            resolutions.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (error != null) {
+                throw error;
+            }
+            ArtifactResult result = new ArtifactResult(request);
+            if (failing) {
+                throw new ArtifactResolutionException(Collections.singletonList(result));
+            }
+            result.setArtifact(
+                    request.getArtifact().setFile(new File(request.getArtifact().toString())));
+            return result;
+        }
+
+        @Override
+        public List<ArtifactResult> resolveArtifacts(
+                RepositorySystemSession session, Collection<? extends ArtifactRequest> requests) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void resolvesOnce() throws Exception {
+        CountingResolver resolver = new CountingResolver(new CountDownLatch(0));
+        ResolutionCache cache = new ResolutionCache();
+        Artifact first = cache.resolve(resolver, null, FEATURE, Collections.emptyList());
+        Artifact second = cache.resolve(resolver, null, FEATURE, Collections.emptyList());
+        assertEquals(first.getFile(), second.getFile());
+        assertEquals(1, resolver.resolutions.get());
+    }
+
+    @Test
+    public void coalescesConcurrentResolutions() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingResolver resolver = new CountingResolver(release);
+        ResolutionCache cache = new ResolutionCache();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Artifact>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.resolve(resolver, null, FEATURE, Collections.emptyList())));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Artifact> result : results) {
+                assertEquals(
+                        FEATURE.toString(),
+                        result.get(10, TimeUnit.SECONDS).getFile().getName());
+            }
+            assertEquals(1, resolver.resolutions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void retriesFailedResolutions() throws Exception {
+        CountingResolver resolver = new CountingResolver(new CountDownLatch(0));
+        ResolutionCache cache = new ResolutionCache();
+        resolver.failing = true;
+        try {
+            cache.resolve(resolver, null, FEATURE, Collections.emptyList());
+            fail("Expected the resolution to fail");
+        } catch (ArtifactResolutionException e) {
+            // expected
+        }
+        resolver.failing = false;
+        cache.resolve(resolver, null, FEATURE, Collections.emptyList());
+        assertEquals(2, resolver.resolutions.get());
+    }
+
+    @Test
+    public void releasesConcurrentResolutionsOnErrors() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingResolver resolver = new CountingResolver(release);
+        resolver.error = new LinkageError("broken resolver");
+        ResolutionCache cache = new ResolutionCache();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Artifact>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> cache.resolve(resolver, null, FEATURE, Collections.emptyList())));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Artifact> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("Expected the resolution to fail");
+                } catch (ExecutionException e) {
+                    assertSame(resolver.error, e.getCause());
+                }
+            }
+            resolver.error = null;
+            cache.resolve(resolver, null, FEATURE, Collections.emptyList());
+            assertEquals(2, resolver.resolutions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
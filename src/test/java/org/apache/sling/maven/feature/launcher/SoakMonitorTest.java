@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SoakMonitorTest {
+
+    private static final long MIB = 1024L * 1024L;
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void growthOfLinearSamples() {
+        assertEquals(
+                20.0,
+                SoakMonitor.growthPerHour(Arrays.asList(
+                        new long[] {0, 100 * MIB}, new long[] {HOUR / 2, 110 * MIB}, new long[] {HOUR, 120 * MIB})),
+                0.001);
+    }
+
+    @Test
+    public void growthIgnoresNoise() {
+        assertEquals(
+                0.0,
+                SoakMonitor.growthPerHour(Arrays.asList(
+                        new long[] {0, 100 * MIB},
+                        new long[] {HOUR, 110 * MIB},
+                        new long[] {2 * HOUR, 110 * MIB},
+                        new long[] {3 * HOUR, 100 * MIB})),
+                0.001);
+    }
+
+    @Test
+    public void noGrowthWithoutEnoughSamples() {
+        assertEquals(0.0, SoakMonitor.growthPerHour(Collections.emptyList()), 0.0);
+        assertEquals(0.0, SoakMonitor.growthPerHour(Collections.singletonList(new long[] {0, MIB})), 0.0);
+    }
+
+    @Test
+    public void growthAcrossRestarts() {
+        // each JVM grows by 20 MiB per hour, and the heap drops with each restart
+        assertEquals(
+                20.0,
+                SoakMonitor.pooledGrowthPerHour(Arrays.asList(
+                        Arrays.asList(new long[] {0, 100 * MIB}, new long[] {HOUR, 120 * MIB}),
+                        Collections.singletonList(new long[] {HOUR + 1, 50 * MIB}),
+                        Arrays.asList(new long[] {2 * HOUR, 60 * MIB}, new long[] {3 * HOUR, 80 * MIB}))),
+                0.001);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class StartScriptTest {
+
+    @Test
+    public void unixAssembly() {
+        Map<String, String> environment = new LinkedHashMap<>();
+        environment.put("JAVA_OPTS", "-Dfoo=bar");
+        environment.put("MODE", "it's");
+        String script = new StartScript(
+                        "model",
+                        "org.apache.sling.feature.launcher-1.3.4/bin/launcher",
+                        true,
+                        Collections.singletonList("-Xmx1g"),
+                        environment,
+                        Arrays.asList("-f", "features/00-model.json", "-p", "model"))
+                .unix();
+        assertTrue(script, script.contains("export MODE='it'\"'\"'s'\n"));
+        assertTrue(script, script.contains("export JAVA_OPTS='-Xmx1g -Dfoo=bar'\n"));
+        assertTrue(
+                script,
+                script.contains(
+                        "exec sh 'org.apache.sling.feature.launcher-1.3.4/bin/launcher' -u \"file:$DIR/repository\" "
+                                + "'-f' 'features/00-model.json' '-p' 'model' \"$@\"\n"));
+    }
+
+    @Test
+    public void windowsSingleJar() {
+        String script = new StartScript(
+                        "model",
+                        "org.apache.sling.feature.launcher-1.1.26.jar",
+                        false,
+                        Collections.singletonList("-Xmx1g"),
+                        Collections.emptyMap(),
+                        Arrays.asList("-D", "name=100%"))
+                .windows();
+        assertTrue(
+                script,
+                script.contains("set \"JAVA=java\"\r\nif defined JAVA_HOME set \"JAVA=%JAVA_HOME%\\bin\\java\"\r\n"
+                        + "\"%JAVA%\" \"-Xmx1g\" -jar \"org.apache.sling.feature.launcher-1.1.26.jar\" "
+                        + "-u \"file:///%DIR%/repository\" \"-D\" \"name=100%%\" %*\r\n"));
+    }
+}
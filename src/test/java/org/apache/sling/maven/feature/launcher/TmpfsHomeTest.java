@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TmpfsHomeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File workDir;
+    private File memory;
+    private Launch launch;
+
+    @Before
+    public void setUp() throws IOException {
+        workDir = folder.newFolder("launchers");
+        memory = folder.newFolder("shm");
+        Tmpfs tmpfs = new Tmpfs();
+        tmpfs.setPath(memory.getAbsolutePath());
+        tmpfs.setSize("1m");
+        launch = new Launch();
+        launch.setId("test");
+        launch.setTmpfs(tmpfs);
+    }
+
+    @Test
+    public void prepareAndRelease() throws IOException {
+        Path home = new File(workDir, "test").toPath();
+        Files.createDirectories(home.resolve("launcher"));
+        write(home.resolve("launcher/cache.bin"), "earlier launch");
+
+        assertTrue(new TmpfsHome(launch, workDir, new SystemStreamLog()).prepare());
+        assertTrue(Files.isSymbolicLink(home));
+        assertEquals("earlier launch", read(home.resolve("launcher/cache.bin")));
+        Files.createDirectories(home.resolve("sling/logs"));
+        write(home.resolve("sling/logs/error.log"), "log");
+
+        new TmpfsHome(launch, workDir, new SystemStreamLog()).release();
+        assertFalse(Files.isSymbolicLink(home));
+        assertEquals("log", read(home.resolve("sling/logs/error.log")));
+        assertFalse(Files.exists(home.resolve("launcher/cache.bin")));
+        assertEquals(0, memory.list().length);
+    }
+
+    @Test
+    public void fallBackToDisk() throws IOException {
+        launch.getTmpfs().get().setSize("1000t");
+        assertFalse(new TmpfsHome(launch, workDir, new SystemStreamLog()).prepare());
+        assertFalse(Files.exists(new File(workDir, "test").toPath()));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
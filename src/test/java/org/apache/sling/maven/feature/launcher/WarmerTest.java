@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.maven.feature.launcher;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WarmerTest {
+
+    @Test
+    public void parseRequest() {
+        HttpRequest request = Warmer.parseRequest("test", "post http://localhost:8080/bin/search")
+                .build();
+        assertEquals("POST", request.method());
+        assertEquals("http://localhost:8080/bin/search", request.uri().toString());
+        assertEquals(
+                "GET",
+                Warmer.parseRequest("test", "http://localhost:8080/").build().method());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidRequest() {
+        Warmer.parseRequest("test", "GET /relative/path");
+    }
+
+    @Test
+    public void stability() {
+        assertEquals(15.0, Warmer.median(Arrays.asList(30L, 10L, 20L, 10L)), 0.0);
+        assertTrue(Warmer.isStable(100, 104, 0.05));
+        assertFalse(Warmer.isStable(100, 80, 0.05));
+    }
+
+    @Test
+    public void run() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            count.incrementAndGet();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            Warmup warmup = new Warmup();
+            warmup.setRequests(Collections.singletonList(
+                    "http://localhost:" + server.getAddress().getPort() + "/"));
+            warmup.setIterations(5);
+            warmup.setConcurrency(2);
+            new Warmer("test", warmup, new SystemStreamLog()).run();
+            assertEquals(10, count.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void retriesUntilRequestsSucceed() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(count.incrementAndGet() <= 2 ? 503 : 204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            Warmup warmup = new Warmup();
+            warmup.setRequests(Collections.singletonList(
+                    "http://localhost:" + server.getAddress().getPort() + "/"));
+            warmup.setIterations(3);
+            assertTrue(new Warmer("test", warmup, new SystemStreamLog()).run());
+            // the two failed rounds are not counted
+            assertEquals(5, count.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void runWithoutSuccessfulRequests() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            Warmup warmup = new Warmup();
+            warmup.setRequests(Collections.singletonList(
+                    "http://localhost:" + server.getAddress().getPort() + "/"));
+            warmup.setIterations(2);
+            warmup.setStabilizationTolerance(0.05);
+            warmup.setMaxDurationSeconds(2);
+            long start = System.nanoTime();
+            assertFalse(new Warmer("test", warmup, new SystemStreamLog()).run());
+            assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(2));
+        } finally {
+            server.stop(0);
+        }
+    }
+}